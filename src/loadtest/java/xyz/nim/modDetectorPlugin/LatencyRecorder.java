@@ -0,0 +1,57 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw per-event latencies and allocation for one event type so exact percentiles can be reported.
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+    private long allocatedBytes;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, long allocated) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+        allocatedBytes += allocated;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the given percentile (0-100) in nanoseconds. Sorts the samples in place, so only call this once recording is done.
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, count);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return samples[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    String summary() {
+        if (count == 0) {
+            return String.format("%-10s no events", name);
+        }
+        return String.format("%-10s n=%-8d p50=%7.1fus p90=%7.1fus p99=%7.1fus p99.9=%7.1fus max=%8.1fus alloc=%6d B/event",
+                name, count,
+                percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0,
+                percentile(99.9) / 1000.0, percentile(100) / 1000.0,
+                allocatedBytes / count);
+    }
+}
@@ -0,0 +1,250 @@
+package xyz.nim.modDetectorPlugin;
+
+import org.bukkit.event.player.PlayerRegisterChannelEvent;
+import org.bukkit.plugin.PluginManager;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless join-storm harness. Boots the plugin on a MockBukkit server and drives {@link ModMessageListener} with
+ * synthetic (or replayed) join / channel-register / quit traffic, then reports per-event latency percentiles,
+ * allocation and heap growth.
+ *
+ * <p>Event handlers only do part of the work on the main thread and hand the rest to the {@link EventPipeline}, so
+ * that work is timed too: {@code lane} covers each pipeline task from submission to completion, including time spent
+ * queued behind other players' events. Every tick waits for the pipeline to drain before the next one starts.
+ *
+ * <p>Run with {@code ./gradlew loadTest -PloadArgs="--players=2000 --distribution=burst"}. Options:
+ * <pre>
+ *   --players=N             synthetic players (default 1000)
+ *   --distribution=D        burst | uniform | poisson (default burst)
+ *   --window=TICKS          join window for uniform/poisson (default 200)
+ *   --session=TICKS         mean session length, exponential (default 1200)
+ *   --mods=id:p,id:p        mod mix, probability per player (default a few popular mods)
+ *   --unknown=N             unknown channels per player (default 2)
+ *   --unknown-pool=N        distinct unknown channel names to draw from (default 500)
+ *   --replay=FILE           replay a recorded detections.json instead of synthetic traffic
+ *   --speed=X               replay time compression factor (default 3600)
+ *   --seed=N                random seed (default 42)
+ *   --budget-p99-us=N       exit with status 1 if channel register p99 exceeds N microseconds
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final String DEFAULT_MOD_MIX =
+            "simple-voice-chat:0.5,jade:0.3,xaeros-minimap:0.25,appleskin:0.4,flashback:0.1";
+
+    private final ServerMock server;
+    private final PluginManager pluginManager;
+    private final EventPipeline pipeline;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private final LatencyRecorder joins = new LatencyRecorder("join");
+    private final LatencyRecorder registers = new LatencyRecorder("register");
+    private final LatencyRecorder quits = new LatencyRecorder("quit");
+    private final LatencyRecorder ticks = new LatencyRecorder("tick");
+    // Recorded from the lane threads
+    private final LatencyRecorder lanes = new LatencyRecorder("lane");
+
+    private LoadHarness(ServerMock server, EventPipeline pipeline) {
+        this.server = server;
+        this.pluginManager = server.getPluginManager();
+        this.pipeline = pipeline;
+        pipeline.setDecorator(this::timeOnLane);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+
+        ServerMock server = MockBukkit.mock();
+        try {
+            ModDetectorPlugin plugin = MockBukkit.load(ModDetectorPlugin.class);
+            ModFilterConfig config = plugin.getModFilterConfig();
+
+            TrafficPlan plan;
+            if (options.containsKey("replay")) {
+                plan = TrafficPlan.replay(config, Path.of(options.get("replay")),
+                        Double.parseDouble(options.getOrDefault("speed", "3600")));
+            } else {
+                plan = TrafficPlan.synthetic(config,
+                        Integer.parseInt(options.getOrDefault("players", "1000")),
+                        TrafficPlan.JoinDistribution.valueOf(options.getOrDefault("distribution", "burst").toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(options.getOrDefault("window", "200")),
+                        Double.parseDouble(options.getOrDefault("session", "1200")),
+                        TrafficPlan.parseModMix(options.getOrDefault("mods", DEFAULT_MOD_MIX)),
+                        Integer.parseInt(options.getOrDefault("unknown", "2")),
+                        Integer.parseInt(options.getOrDefault("unknown-pool", "500")),
+                        Long.parseLong(options.getOrDefault("seed", "42")));
+            }
+
+            LoadHarness harness = new LoadHarness(server, plugin.getMessageListener().getPipeline());
+            boolean withinBudget = harness.run(plan, Long.parseLong(options.getOrDefault("budget-p99-us", "0")));
+            if (!withinBudget) {
+                System.exit(1);
+            }
+        } finally {
+            MockBukkit.unmock();
+        }
+    }
+
+    private boolean run(TrafficPlan plan, long budgetP99Micros) {
+        Map<Integer, List<TrafficPlan.SimSession>> joinsAt = new HashMap<>();
+        Map<Integer, List<TrafficPlan.SimSession>> quitsAt = new HashMap<>();
+        for (TrafficPlan.SimSession session : plan.getSessions()) {
+            joinsAt.computeIfAbsent(session.joinTick, k -> new ArrayList<>()).add(session);
+            quitsAt.computeIfAbsent(session.quitTick, k -> new ArrayList<>()).add(session);
+        }
+
+        Map<TrafficPlan.SimSession, PlayerMock> online = new HashMap<>();
+        int lastTick = plan.getLastTick();
+        int peakOnline = 0;
+        int maxJoinsPerTick = 0;
+        int kicked = 0;
+
+        long heapBefore = usedHeapAfterGc();
+        long peakHeap = heapBefore;
+        long allocBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        System.out.printf("Simulating %d sessions over %d ticks%n", plan.getSessions().size(), lastTick + 1);
+
+        for (int tick = 0; tick <= lastTick; tick++) {
+            List<TrafficPlan.SimSession> joining = joinsAt.getOrDefault(tick, List.of());
+            maxJoinsPerTick = Math.max(maxJoinsPerTick, joining.size());
+
+            for (TrafficPlan.SimSession session : joining) {
+                PlayerMock player = new PlayerMock(server, session.name, session.uuid);
+                measure(joins, () -> server.addPlayer(player));
+                for (String channel : session.channels) {
+                    measure(registers, () -> pluginManager.callEvent(new PlayerRegisterChannelEvent(player, channel)));
+                }
+                online.put(session, player);
+            }
+
+            for (TrafficPlan.SimSession session : quitsAt.getOrDefault(tick, List.of())) {
+                PlayerMock player = online.remove(session);
+                if (player == null) continue;
+                if (player.isOnline()) {
+                    measure(quits, player::disconnect);
+                } else {
+                    kicked++;
+                }
+            }
+
+            peakOnline = Math.max(peakOnline, online.size());
+            measure(ticks, () -> server.getScheduler().performOneTick());
+            awaitPipeline();
+
+            if (tick % 200 == 0) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+
+        // Let the async flush and any trailing kick tasks run
+        server.getScheduler().performTicks(600L);
+        server.getScheduler().waitAsyncTasksFinished();
+        awaitPipeline();
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocBefore;
+        long heapAfter = usedHeapAfterGc();
+        int events = joins.getCount() + registers.getCount() + quits.getCount();
+        double seconds = elapsedNanos / 1_000_000_000.0;
+
+        System.out.println("=== ModDetector load harness ===");
+        System.out.printf("Peak online: %d, max joins in one tick: %d, kicked: %d%n", peakOnline, maxJoinsPerTick, kicked);
+        System.out.println(joins.summary());
+        System.out.println(registers.summary());
+        System.out.println(quits.summary());
+        System.out.println(ticks.summary());
+        synchronized (lanes) {
+            System.out.println(lanes.summary());
+        }
+        System.out.printf("Events: %d in %.2fs (%.0f events/s)%n", events, seconds, events / seconds);
+        System.out.printf("Allocation: %.1f MB total, %.1f MB/s (main thread, includes MockBukkit overhead)%n",
+                allocated / 1048576.0, allocated / 1048576.0 / seconds);
+        System.out.printf("Heap: %.1f MB before, %.1f MB after (growth %+.1f MB), peak sampled %.1f MB%n",
+                heapBefore / 1048576.0, heapAfter / 1048576.0, (heapAfter - heapBefore) / 1048576.0, peakHeap / 1048576.0);
+
+        if (budgetP99Micros > 0) {
+            long p99Micros = registers.percentile(99) / 1000;
+            if (p99Micros > budgetP99Micros) {
+                System.out.printf("FAIL: register p99 %dus exceeds budget %dus%n", p99Micros, budgetP99Micros);
+                return false;
+            }
+            System.out.printf("OK: register p99 %dus within budget %dus%n", p99Micros, budgetP99Micros);
+        }
+        return true;
+    }
+
+    private void measure(LatencyRecorder recorder, Runnable action) {
+        long allocStart = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        action.run();
+        long nanos = System.nanoTime() - start;
+        recorder.record(nanos, threads.getCurrentThreadAllocatedBytes() - allocStart);
+    }
+
+    /**
+     * Wraps a pipeline task so its latency from submission to completion, and what it allocates on the lane, are
+     * recorded.
+     */
+    private Runnable timeOnLane(Runnable work) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long allocStart = threads.getCurrentThreadAllocatedBytes();
+            try {
+                work.run();
+            } finally {
+                long nanos = System.nanoTime() - submitted;
+                long allocated = threads.getCurrentThreadAllocatedBytes() - allocStart;
+                synchronized (lanes) {
+                    lanes.record(nanos, allocated);
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until the lanes have finished everything submitted so far.
+     */
+    private void awaitPipeline() {
+        while (pipeline.getQueued() > 0) {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private long usedHeapAfterGc() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
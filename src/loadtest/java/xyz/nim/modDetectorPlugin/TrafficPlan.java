@@ -0,0 +1,246 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A tick-based schedule of synthetic player sessions: who joins when, which channels they register and when they quit.
+ */
+final class TrafficPlan {
+
+    static final class SimSession {
+        final UUID uuid;
+        final String name;
+        final int joinTick;
+        final int quitTick;
+        final List<String> channels;
+
+        SimSession(UUID uuid, String name, int joinTick, int quitTick, List<String> channels) {
+            this.uuid = uuid;
+            this.name = name;
+            this.joinTick = joinTick;
+            this.quitTick = quitTick;
+            this.channels = channels;
+        }
+    }
+
+    enum JoinDistribution {
+        BURST,
+        UNIFORM,
+        POISSON
+    }
+
+    private final List<SimSession> sessions;
+
+    private TrafficPlan(List<SimSession> sessions) {
+        this.sessions = sessions;
+    }
+
+    List<SimSession> getSessions() {
+        return sessions;
+    }
+
+    int getLastTick() {
+        int last = 0;
+        for (SimSession session : sessions) {
+            last = Math.max(last, session.quitTick);
+        }
+        return last;
+    }
+
+    /**
+     * Builds a synthetic storm of {@code players} sessions.
+     *
+     * @param modMix mod ID to the probability (0-1) that a player has that mod installed
+     */
+    static TrafficPlan synthetic(ModFilterConfig config, int players, JoinDistribution distribution, int joinWindowTicks,
+                                 double meanSessionTicks, Map<String, Double> modMix, int unknownPerPlayer,
+                                 int unknownPool, long seed) {
+        Random random = new Random(seed);
+        Map<String, List<String>> modChannels = new LinkedHashMap<>();
+        for (String modId : modMix.keySet()) {
+            ModFilterConfig.ModDefinition mod = config.getKnownMods().get(modId.toLowerCase());
+            if (mod == null) {
+                mod = config.getCustomMods().get(modId.toLowerCase());
+            }
+            if (mod == null) {
+                throw new IllegalArgumentException("Unknown mod ID in mix: " + modId);
+            }
+            List<String> channels = new ArrayList<>();
+            for (String pattern : mod.getChannels()) {
+                channels.add(concretize(pattern));
+            }
+            modChannels.put(modId, channels);
+        }
+
+        List<SimSession> sessions = new ArrayList<>(players);
+        double nextPoissonTick = 0;
+        for (int i = 0; i < players; i++) {
+            int joinTick = switch (distribution) {
+                case BURST -> 0;
+                case UNIFORM -> joinWindowTicks > 0 ? random.nextInt(joinWindowTicks) : 0;
+                case POISSON -> {
+                    // Exponential inter-arrival times averaging out to `players` joins over the window
+                    double rate = players / (double) Math.max(1, joinWindowTicks);
+                    nextPoissonTick += -Math.log(1.0 - random.nextDouble()) / rate;
+                    yield (int) nextPoissonTick;
+                }
+            };
+            int length = Math.max(20, (int) (-Math.log(1.0 - random.nextDouble()) * meanSessionTicks));
+
+            List<String> channels = new ArrayList<>();
+            for (Map.Entry<String, Double> entry : modMix.entrySet()) {
+                if (random.nextDouble() < entry.getValue()) {
+                    channels.addAll(modChannels.get(entry.getKey()));
+                }
+            }
+            for (int u = 0; u < unknownPerPlayer; u++) {
+                channels.add("loadtest" + random.nextInt(Math.max(1, unknownPool)) + ":data");
+            }
+
+            sessions.add(new SimSession(UUID.randomUUID(), "Sim" + i, joinTick, joinTick + length, channels));
+        }
+        return new TrafficPlan(sessions);
+    }
+
+    /**
+     * Replays the sessions recorded in a detections.json (or .json.gz) file, compressing wall-clock time by
+     * {@code speed}. The mod set dictionary next to it is loaded first so sessions resolve to their mods.
+     */
+    static TrafficPlan replay(ModFilterConfig config, Path file, double speed) throws IOException {
+        loadModSets(file);
+
+        // Resolve mod names back to a representative channel so the listener re-detects the same mods
+        Map<String, String> modNameToChannel = new HashMap<>();
+        for (ModFilterConfig.ModDefinition mod : config.getKnownMods().values()) {
+            if (!mod.getChannels().isEmpty()) {
+                modNameToChannel.putIfAbsent(mod.getName(), concretize(mod.getChannels().getFirst()));
+            }
+        }
+        for (ModFilterConfig.ModDefinition mod : config.getCustomMods().values()) {
+            if (!mod.getChannels().isEmpty()) {
+                modNameToChannel.put(mod.getName(), concretize(mod.getChannels().getFirst()));
+            }
+        }
+
+        // The file is append-only between compactions; a player's last line holds their full history
+        Map<UUID, DetectionLogger.PlayerChannelData> latest = new LinkedHashMap<>();
+        try (BufferedReader reader = open(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                DetectionLogger.PlayerChannelData data = DetectionLogger.parsePlayerData(line);
+                if (data != null) {
+                    latest.put(data.uuid, data);
+                }
+            }
+        }
+
+        record Recorded(UUID uuid, String name, long joinEpoch, long durationSeconds, List<String> channels) {}
+        List<Recorded> recorded = new ArrayList<>();
+        for (DetectionLogger.PlayerChannelData data : latest.values()) {
+            if (data.sessions == null) continue;
+            for (int i = 0; i < data.sessions.size(); i++) {
+                DetectionLogger.SessionRecord session = data.sessions.get(i);
+                if (session.joinTime == 0) continue;
+
+                List<String> channels = new ArrayList<>();
+                for (String mod : DetectionLogger.getModsForSession(data.sessions, i)) {
+                    channels.add(modNameToChannel.getOrDefault(mod, mod));
+                }
+                if (session.channels != null) {
+                    channels.addAll(session.channels);
+                }
+                recorded.add(new Recorded(data.uuid, data.username, session.joinTime,
+                        session.durationSeconds, channels));
+            }
+        }
+
+        recorded.sort(Comparator.comparingLong(Recorded::joinEpoch));
+        List<SimSession> sessions = new ArrayList<>(recorded.size());
+        if (recorded.isEmpty()) {
+            return new TrafficPlan(sessions);
+        }
+
+        long origin = recorded.getFirst().joinEpoch();
+        Map<UUID, Integer> busyUntil = new HashMap<>();
+        for (Recorded r : recorded) {
+            int joinTick = (int) ((r.joinEpoch() - origin) * 20 / speed);
+            // The same player cannot be online twice; push overlapping replays after the previous quit
+            joinTick = Math.max(joinTick, busyUntil.getOrDefault(r.uuid(), -1) + 1);
+            int quitTick = joinTick + Math.max(1, (int) (r.durationSeconds() * 20 / speed));
+            busyUntil.put(r.uuid(), quitTick);
+            String name = r.name() != null ? r.name() : r.uuid().toString().substring(0, 16);
+            sessions.add(new SimSession(r.uuid(), name, joinTick, quitTick, r.channels()));
+        }
+        return new TrafficPlan(sessions);
+    }
+
+    /**
+     * Registers the mod sets from the dictionary written alongside a data file: {@code modsets.json} next to
+     * {@code detections.json}, or {@code <node>.modsets.json} next to a shared store's {@code <node>.detections.json}.
+     */
+    private static void loadModSets(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (!name.endsWith("detections.json")) {
+            return;
+        }
+        Path dictionary = file.resolveSibling(name.substring(0, name.length() - "detections.json".length())
+                + "modsets.json");
+        if (!Files.isRegularFile(dictionary)) {
+            System.err.println("No mod set dictionary at " + dictionary + "; sessions will replay without mods");
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(dictionary, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) DetectionTypeAdapters.readModSet(line, false);
+            }
+        }
+    }
+
+    private static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns a wildcard pattern into one concrete channel name it matches.
+     */
+    static String concretize(String pattern) {
+        return pattern.replace("*", "loadtest").replace('?', 'x');
+    }
+
+    static Map<String, Double> parseModMix(String spec) {
+        Map<String, Double> mix = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return mix;
+        }
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            mix.put(kv[0], kv.length > 1 ? Double.parseDouble(kv[1]) : 1.0);
+        }
+        return mix;
+    }
+}
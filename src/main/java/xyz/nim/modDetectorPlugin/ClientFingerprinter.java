@@ -0,0 +1,217 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Identifies whole clients rather than single channels: once a player's channel registrations settle, the client
+ * brand, the channels in registration order and a coarse timing class are hashed into a 64-bit signature.
+ *
+ * <p>Players with the same mod pack produce the same signature, so the table of known clients is a map lookup and the
+ * rest of the work (resolving every channel to a mod name) is done once per signature and cached. A known client is
+ * still recognised if it renames its channels, as long as its signature was captured after the rename.
+ */
+final class ClientFingerprinter {
+
+    /**
+     * An entry from {@code fingerprints.known} in config.yml.
+     */
+    static final class KnownClient {
+        final String id;
+        final String name;
+        final boolean block;
+
+        KnownClient(String id, String name, boolean block) {
+            this.id = id;
+            this.name = name;
+            this.block = block;
+        }
+    }
+
+    /**
+     * What a signature resolved to; shared by every player with that signature.
+     */
+    static final class Identification {
+        final long signature;
+        final String brand;
+        final KnownClient client;       // Null if the signature is not in the table
+        final List<String> mods;        // Mod names resolved from the channels, in registration order
+        final int channelCount;
+
+        Identification(long signature, String brand, KnownClient client, List<String> mods, int channelCount) {
+            this.signature = signature;
+            this.brand = brand;
+            this.client = client;
+            this.mods = mods;
+            this.channelCount = channelCount;
+        }
+
+        String signatureHex() {
+            return formatSignature(signature);
+        }
+    }
+
+    // Registrations further apart than this put the client in the "spread" timing class
+    private static final long BURST_MILLIS = 1000;
+    // Modded clients are few, but arbitrary channel lists could otherwise grow the cache without bound
+    private static final int MAX_CACHED_SIGNATURES = 4096;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final class Tracker {
+        final List<String> channels = new ArrayList<>();
+        long firstMillis;
+        long lastMillis;
+        boolean settled;
+    }
+
+    private final ModFilterConfig config;
+    private final Map<UUID, Tracker> trackers = new ConcurrentHashMap<>();
+    private final Map<UUID, Identification> identified = new ConcurrentHashMap<>();
+    private final Map<Long, Identification> bySignature = new ConcurrentHashMap<>();
+    private Map<Long, KnownClient> cachedFor;
+
+    ClientFingerprinter(ModFilterConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Records a newly registered channel. A channel arriving after the player was fingerprinted starts over, so the
+     * signature always covers the full set.
+     */
+    void onChannel(UUID uuid, String channel) {
+        Tracker tracker = trackers.computeIfAbsent(uuid, k -> new Tracker());
+        long now = System.currentTimeMillis();
+        synchronized (tracker) {
+            if (tracker.channels.isEmpty()) {
+                tracker.firstMillis = now;
+            }
+            tracker.channels.add(channel);
+            tracker.lastMillis = now;
+            tracker.settled = false;
+        }
+    }
+
+    /**
+     * Fingerprints every player whose registrations have been quiet for {@code settleMillis} and passes each one to
+     * {@code onIdentified}. {@code brands} looks up a player's client brand, which may be null.
+     */
+    void settle(long settleMillis, Function<UUID, String> brands,
+                BiConsumer<UUID, Identification> onIdentified) {
+        if (trackers.isEmpty()) {
+            return;
+        }
+        Map<Long, KnownClient> known = config.getKnownClients();
+        if (known != cachedFor) {
+            // The table changed on reload; cached identifications point at the old one
+            bySignature.clear();
+            cachedFor = known;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<UUID, Tracker> entry : trackers.entrySet()) {
+            Tracker tracker = entry.getValue();
+            List<String> channels;
+            boolean burst;
+            synchronized (tracker) {
+                if (tracker.settled || now - tracker.lastMillis < settleMillis) continue;
+                tracker.settled = true;
+                channels = List.copyOf(tracker.channels);
+                burst = tracker.lastMillis - tracker.firstMillis < BURST_MILLIS;
+            }
+            String brand = brands.apply(entry.getKey());
+            long signature = signature(brand, channels, burst);
+            Identification identification = bySignature.get(signature);
+            if (identification == null) {
+                identification = identify(signature, brand, channels, known);
+                if (bySignature.size() < MAX_CACHED_SIGNATURES) {
+                    bySignature.put(signature, identification);
+                }
+            }
+            identified.put(entry.getKey(), identification);
+            onIdentified.accept(entry.getKey(), identification);
+        }
+    }
+
+    private Identification identify(long signature, String brand, List<String> channels, Map<Long, KnownClient> known) {
+        Set<String> mods = new LinkedHashSet<>();
+        for (String channel : channels) {
+            String modName = config.getModName(channel);
+            if (!modName.equals(channel)) {
+                mods.add(modName);
+            }
+        }
+        return new Identification(signature, brand, known.get(signature), List.copyOf(mods), channels.size());
+    }
+
+    /**
+     * FNV-1a over the lowercase brand, each channel in order and the timing class.
+     */
+    static long signature(String brand, List<String> channels, boolean burst) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, brand != null ? brand.toLowerCase(Locale.ROOT) : "");
+        for (String channel : channels) {
+            hash = mix(hash, channel);
+        }
+        hash ^= burst ? 1 : 2;
+        return hash * FNV_PRIME;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        // Separator, so ["ab", "c"] and ["a", "bc"] differ
+        return (hash ^ 0xFF) * FNV_PRIME;
+    }
+
+    static String formatSignature(long signature) {
+        return String.format("%016x", signature);
+    }
+
+    /**
+     * Parses a signature as shown by {@code /md info}, or returns null.
+     */
+    static Long parseSignature(String value) {
+        try {
+            return Long.parseUnsignedLong(value.trim(), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    Identification getIdentification(UUID uuid) {
+        return identified.get(uuid);
+    }
+
+    /**
+     * Drops cached identifications after mod definitions changed, since the resolved mod names may differ.
+     */
+    void clearCache() {
+        bySignature.clear();
+    }
+
+    void remove(UUID uuid) {
+        trackers.remove(uuid);
+        identified.remove(uuid);
+    }
+
+    void retainOnly(Set<UUID> online) {
+        trackers.keySet().retainAll(online);
+        identified.keySet().retainAll(online);
+    }
+
+    int cachedSignatureCount() {
+        return bySignature.size();
+    }
+}
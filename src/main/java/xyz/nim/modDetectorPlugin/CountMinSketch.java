@@ -0,0 +1,54 @@
+package xyz.nim.modDetectorPlugin;
+
+/**
+ * Approximate per-key counters in fixed memory. Each key increments one cell per row; the estimate is the smallest of
+ * those cells, which can overcount (when other keys share every cell) but never undercounts.
+ */
+final class CountMinSketch {
+
+    static final int DEPTH = 4;
+    static final int WIDTH = 1024;
+
+    private final int[][] counts;
+
+    CountMinSketch() {
+        this.counts = new int[DEPTH][WIDTH];
+    }
+
+    CountMinSketch(int[][] counts) {
+        if (counts.length != DEPTH || counts[0].length != WIDTH) {
+            throw new IllegalArgumentException("Expected a " + DEPTH + "x" + WIDTH + " sketch");
+        }
+        this.counts = counts;
+    }
+
+    void add(long hash) {
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = cell(hash, row);
+            if (counts[row][cell] != Integer.MAX_VALUE) {
+                counts[row][cell]++;
+            }
+        }
+    }
+
+    int estimate(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counts[row][cell(hash, row)]);
+        }
+        return min;
+    }
+
+    int[][] counts() {
+        return counts;
+    }
+
+    /**
+     * Derives each row's cell from the two halves of one hash (Kirsch-Mitzenmacher), instead of hashing per row.
+     */
+    private static int cell(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + row * h2, WIDTH);
+    }
+}
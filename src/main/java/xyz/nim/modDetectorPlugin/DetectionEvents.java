@@ -0,0 +1,113 @@
+package xyz.nim.modDetectorPlugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the plugin's own work, so a recording attributes time to channel matching, session
+ * logging, flushes, reloads and kicks instead of to generic listener frames.
+ *
+ * <p>All are disabled by default; enable them in the recording's settings file (see the README). A disabled event's
+ * {@code begin}, {@code end} and {@code commit} do nothing, and callers only fill in fields once
+ * {@code shouldCommit()} says the event will be recorded.
+ */
+final class DetectionEvents {
+
+    private DetectionEvents() {}
+
+    @Name("moddetector.ChannelClassification")
+    @Label("Channel Classification")
+    @Description("A registered channel checked against the player's rule profile")
+    @Category("ModDetector")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ChannelClassification extends Event {
+        @Label("Channel")
+        String channel;
+
+        @Label("Profile")
+        String profile;
+
+        @Label("Verdict")
+        String verdict;
+    }
+
+    @Name("moddetector.SessionClose")
+    @Label("Session Close")
+    @Description("A finished session merged into the player's detection record")
+    @Category("ModDetector")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class SessionClose extends Event {
+        @Label("Sessions")
+        @Description("Sessions in the player's record, including this one")
+        int sessionCount;
+
+        @Label("Delta Type")
+        @Description("new (first record), unchanged (same mods as the last session) or changed")
+        String deltaType;
+
+        @Label("Mods")
+        int mods;
+    }
+
+    @Name("moddetector.StoreFlush")
+    @Label("Store Flush")
+    @Description("Changed player records written to the data file")
+    @Category("ModDetector")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class StoreFlush extends Event {
+        @Label("Kind")
+        @Description("append or compaction")
+        String kind;
+
+        @Label("Records")
+        long records;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Forced")
+        boolean forced;
+    }
+
+    @Name("moddetector.ConfigReload")
+    @Label("Config Reload")
+    @Description("config.yml loaded and its rules compiled")
+    @Category("ModDetector")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ConfigReload extends Event {
+        @Label("Patterns Compiled")
+        int patternsCompiled;
+
+        @Label("Profiles")
+        int profiles;
+    }
+
+    @Name("moddetector.KickBatch")
+    @Label("Kick Batch")
+    @Description("Players checked and kicked in one pass")
+    @Category("ModDetector")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class KickBatch extends Event {
+        @Label("Trigger")
+        @Description("detection or reload re-check")
+        String trigger;
+
+        @Label("Players")
+        int players;
+
+        @Label("Kicked")
+        int kicked;
+    }
+}
@@ -0,0 +1,311 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Exports the detection history with one row per session and the session's full mod list resolved.
+ *
+ * <p>Players are visited one at a time and each session list is walked front to back with
+ * {@link DetectionLogger#nextSessionMods}, so memory use is one player's history plus (for the columnar format) one
+ * row group, however large the history is. Runs on whatever thread calls {@link #export}; callers keep it off the
+ * main thread.
+ */
+public class DetectionExporter {
+
+    public enum Format {
+        CSV("csv"),
+        COLUMNAR("mdcol");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    static final String[] COLUMNS = {
+            "uuid", "username", "session", "join_time", "leave_time", "duration_seconds", "mods", "mod_count", "channels"
+    };
+
+    private static final int ROW_GROUP_SIZE = 8192;
+    private static final int PROGRESS_STEPS = 10;
+
+    private final DetectionLogger detectionLogger;
+    private final File exportDir;
+
+    public DetectionExporter(DetectionLogger detectionLogger, File exportDir) {
+        this.detectionLogger = detectionLogger;
+        this.exportDir = exportDir;
+    }
+
+    /**
+     * Writes every session to a new file in the export directory.
+     *
+     * @param progress receives a short status line roughly every tenth of the players
+     * @return the finished file
+     */
+    public File export(Format format, Consumer<String> progress) throws IOException {
+        if (!exportDir.exists() && !exportDir.mkdirs()) {
+            throw new IOException("Cannot create " + exportDir);
+        }
+        String stamp = DetectionLogger.formatTimestamp(System.currentTimeMillis() / 1000).replace(":", "-");
+        File target = new File(exportDir, "detections-" + stamp + "." + format.extension);
+        File temp = new File(exportDir, target.getName() + ".tmp");
+
+        int expected = detectionLogger.getPlayerCount();
+        int reportEvery = Math.max(1, expected / PROGRESS_STEPS);
+        int[] players = {0};
+        long[] rows = {0};
+
+        try (RowSink sink = format == Format.CSV ? new CsvSink(temp) : new ColumnarSink(temp)) {
+            detectionLogger.forEachPlayer(data -> {
+                try {
+                    rows[0] += writePlayer(data, sink);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++players[0] % reportEvery == 0 && players[0] < expected) {
+                    progress.accept(players[0] * 100L / expected + "% (" + players[0] + " players, "
+                            + rows[0] + " sessions)");
+                }
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e.getCause();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        progress.accept("100% (" + players[0] + " players, " + rows[0] + " sessions)");
+        return target;
+    }
+
+    private static int writePlayer(DetectionLogger.PlayerChannelData data, RowSink sink) throws IOException {
+        if (data.sessions == null) {
+            return 0;
+        }
+        String uuid = data.uuid.toString();
+        String username = data.username != null ? data.username : "";
+        Set<String> mods = Set.of();
+        // Index loop: the live list may grow while we walk it, but never shrinks
+        int count = data.sessions.size();
+        for (int i = 0; i < count; i++) {
+            DetectionLogger.SessionRecord session = data.sessions.get(i);
+            mods = DetectionLogger.nextSessionMods(mods, session);
+            sink.row(uuid, username, i + 1, session.joinTime, session.leaveTime, session.durationSeconds,
+                    String.join(";", mods), mods.size(),
+                    session.channels != null ? String.join(";", session.channels) : "");
+        }
+        return count;
+    }
+
+    /**
+     * Parses a format name as typed in {@code /md export}, or returns null.
+     */
+    public static Format parseFormat(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "csv" -> Format.CSV;
+            case "columnar", "mdcol" -> Format.COLUMNAR;
+            default -> null;
+        };
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void row(String uuid, String username, int session, long joinTime, long leaveTime, long duration,
+                 String mods, int modCount, String channels) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer out;
+
+        CsvSink(File file) throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+            out.write(String.join(",", COLUMNS));
+            out.write('\n');
+        }
+
+        @Override
+        public void row(String uuid, String username, int session, long joinTime, long leaveTime, long duration,
+                        String mods, int modCount, String channels) throws IOException {
+            out.write(uuid);
+            out.write(',');
+            out.write(escape(username));
+            out.write(',');
+            out.write(Integer.toString(session));
+            out.write(',');
+            out.write(joinTime != 0 ? DetectionLogger.formatTimestamp(joinTime) : "");
+            out.write(',');
+            out.write(leaveTime != 0 ? DetectionLogger.formatTimestamp(leaveTime) : "");
+            out.write(',');
+            out.write(Long.toString(duration));
+            out.write(',');
+            out.write(escape(mods));
+            out.write(',');
+            out.write(Integer.toString(modCount));
+            out.write(',');
+            out.write(escape(channels));
+            out.write('\n');
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Compact columnar layout ({@code .mdcol}), readable without loading the whole file:
+     * <pre>
+     *   magic "MDCOL1", varint column count, then per column: UTF name, byte type (0 = string, 1 = integer)
+     *   row groups of up to 8192 rows: varint row count, then per column: varint byte length + column bytes
+     *   end marker: varint 0
+     * </pre>
+     * String columns hold a per-group dictionary (varint size, UTF entries) followed by one varint index per row,
+     * which collapses repeated names and mod lists. Integer columns hold zig-zag varint deltas from the previous row.
+     */
+    private static final class ColumnarSink implements RowSink {
+        private static final byte STRING = 0;
+        private static final byte INTEGER = 1;
+        private static final byte[] TYPES = {STRING, STRING, INTEGER, INTEGER, INTEGER, INTEGER, STRING, INTEGER, STRING};
+
+        private final DataOutputStream out;
+        private final List<ColumnBuffer> columns = new ArrayList<>();
+        private int rows;
+
+        ColumnarSink(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            out.writeBytes("MDCOL1");
+            writeVarint(out, COLUMNS.length);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                out.writeUTF(COLUMNS[i]);
+                out.writeByte(TYPES[i]);
+                columns.add(new ColumnBuffer(TYPES[i] == STRING));
+            }
+        }
+
+        @Override
+        public void row(String uuid, String username, int session, long joinTime, long leaveTime, long duration,
+                        String mods, int modCount, String channels) throws IOException {
+            columns.get(0).addString(uuid);
+            columns.get(1).addString(username);
+            columns.get(2).addLong(session);
+            columns.get(3).addLong(joinTime);
+            columns.get(4).addLong(leaveTime);
+            columns.get(5).addLong(duration);
+            columns.get(6).addString(mods);
+            columns.get(7).addLong(modCount);
+            columns.get(8).addString(channels);
+            if (++rows == ROW_GROUP_SIZE) {
+                flushGroup();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            writeVarint(out, rows);
+            for (ColumnBuffer column : columns) {
+                byte[] bytes = column.finish();
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+            rows = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushGroup();
+                writeVarint(out, 0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class ColumnBuffer {
+        private final boolean strings;
+        private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+        private final DataOutputStream valueOut = new DataOutputStream(values);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> entries = new ArrayList<>();
+        private long previous;
+
+        ColumnBuffer(boolean strings) {
+            this.strings = strings;
+        }
+
+        void addString(String value) throws IOException {
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = entries.size();
+                dictionary.put(value, id);
+                entries.add(value);
+            }
+            writeVarint(valueOut, id);
+        }
+
+        void addLong(long value) throws IOException {
+            long delta = value - previous;
+            previous = value;
+            writeVarint(valueOut, (delta << 1) ^ (delta >> 63));
+        }
+
+        byte[] finish() throws IOException {
+            ByteArrayOutputStream column = new ByteArrayOutputStream(values.size() + entries.size() * 16);
+            DataOutputStream columnOut = new DataOutputStream(column);
+            if (strings) {
+                writeVarint(columnOut, entries.size());
+                for (String entry : entries) {
+                    columnOut.writeUTF(entry);
+                }
+            }
+            values.writeTo(column);
+            values.reset();
+            dictionary.clear();
+            entries.clear();
+            previous = 0;
+            return column.toByteArray();
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
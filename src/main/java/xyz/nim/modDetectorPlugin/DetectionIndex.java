@@ -0,0 +1,134 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted indexes over the detection history: mod name and unknown channel to players, and UTC day to
+ * players with a session that day. Names are covered by {@link UsernameIndex}. Maintained incrementally as records are loaded and logged.
+ *
+ * <p>Entries are only ever added, so a posting list may still hold a player whose record no longer matches (e.g. a
+ * superseded line read while loading). Callers treat results as candidates and check them against the actual record.
+ */
+final class DetectionIndex {
+
+    private final Map<String, Set<UUID>> playersByMod = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> playersByChannel = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<UUID>> playersByDay = new ConcurrentSkipListMap<>();
+
+    void indexRecord(DetectionLogger.PlayerChannelData data) {
+        UUID uuid = data.uuid;
+        if (data.mods != null) {
+            for (String mod : data.mods) {
+                indexMod(uuid, mod);
+            }
+        }
+        if (data.channels != null) {
+            for (String channel : data.channels) {
+                indexChannel(uuid, channel);
+            }
+        }
+        if (data.sessions != null) {
+            for (DetectionLogger.SessionRecord session : data.sessions) {
+                indexSessionDay(uuid, session.joinTime);
+            }
+        }
+    }
+
+    void indexSession(UUID uuid, long joinTime, Set<String> mods, Set<String> channels) {
+        indexSessionDay(uuid, joinTime);
+        for (String mod : mods) {
+            indexMod(uuid, mod);
+        }
+        if (channels != null) {
+            for (String channel : channels) {
+                indexChannel(uuid, channel);
+            }
+        }
+    }
+
+    void indexMod(UUID uuid, String mod) {
+        add(playersByMod, key(mod), uuid);
+    }
+
+    void indexChannel(UUID uuid, String channel) {
+        add(playersByChannel, key(channel), uuid);
+    }
+
+    private void indexSessionDay(UUID uuid, long epochSecond) {
+        if (epochSecond != 0) {
+            playersByDay.computeIfAbsent(epochDay(epochSecond), k -> ConcurrentHashMap.newKeySet()).add(uuid);
+        }
+    }
+
+    Set<UUID> playersWithMod(String mod) {
+        return playersByMod.getOrDefault(key(mod), Set.of());
+    }
+
+    Set<UUID> playersWithChannel(String channel) {
+        return playersByChannel.getOrDefault(key(channel), Set.of());
+    }
+
+    /**
+     * Players with at least one session starting on a UTC day within [from, to] (epoch seconds, inclusive).
+     */
+    Set<UUID> playersActiveBetween(long fromEpochSecond, long toEpochSecond) {
+        NavigableMap<Long, Set<UUID>> days = playersByDay.subMap(epochDay(fromEpochSecond), true, epochDay(toEpochSecond), true);
+        Set<UUID> players = new HashSet<>();
+        for (Set<UUID> day : days.values()) {
+            players.addAll(day);
+        }
+        return players;
+    }
+
+    int modCount() {
+        return playersByMod.size();
+    }
+
+    int channelCount() {
+        return playersByChannel.size();
+    }
+
+    int dayCount() {
+        return playersByDay.size();
+    }
+
+    void reportMemory(MemoryReport report) {
+        long postings = 0;
+        long bytes = 0;
+        for (Map<String, Set<UUID>> index : List.of(playersByMod, playersByChannel)) {
+            bytes += MemoryReport.hashEntries(index.size());
+            for (Map.Entry<String, Set<UUID>> entry : index.entrySet()) {
+                postings += entry.getValue().size();
+                bytes += MemoryReport.string(entry.getKey()) + MemoryReport.hashEntries(entry.getValue().size());
+            }
+        }
+        // Skip-list nodes cost about the same as hash entries
+        bytes += MemoryReport.hashEntries(playersByDay.size());
+        for (Set<UUID> day : playersByDay.values()) {
+            postings += day.size();
+            bytes += MemoryReport.BOXED_LONG + MemoryReport.hashEntries(day.size());
+        }
+        // The UUIDs themselves belong to the player records
+        report.add("Search index", postings, bytes);
+    }
+
+    private static long epochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond, 86400L);
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void add(Map<String, Set<UUID>> index, String key, UUID uuid) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(uuid);
+    }
+}
@@ -2,65 +2,207 @@ package xyz.nim.modDetectorPlugin;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
-
-public class DetectionLogger {
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public final class DetectionLogger {
+
+    // Timestamps are kept as epoch seconds and only formatted for display
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
             .withZone(ZoneId.of("UTC"));
 
-    private static final Gson GSON = new GsonBuilder()
+    private static final Gson GSON = DetectionTypeAdapters.register(new GsonBuilder())
             .disableHtmlEscaping()
             .create();
 
+    private static final Type STRING_SET_TYPE = new TypeToken<Set<String>>() {}.getType();
+    private static final TypeAdapter<PlayerChannelData> PLAYER_DATA_ADAPTER = GSON.getAdapter(PlayerChannelData.class);
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
     private final ModDetectorPlugin plugin;
     private final File logFile;
+    private final File compressedLogFile;
     private final File discoveredChannelsFile;
+    private final File modSetsFile;
+    // Non-null when shared-storage is enabled; the files above then live in the shared directory
+    private final SharedDetectionStore sharedStore;
 
     private final Map<UUID, PlayerChannelData> playerDataCache = new ConcurrentHashMap<>();
     private final Set<String> discoveredChannels = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean discoveredLimitWarned = new AtomicBoolean(false);
+    // Inverted indexes for /md search, kept up to date as records are loaded and logged
+    private final DetectionIndex index = new DetectionIndex();
+    private final UsernameIndex usernames = new UsernameIndex();
 
-    // Batched write support
-    private final AtomicBoolean pendingPlayerDataWrite = new AtomicBoolean(false);
+    // Batched write support: only players changed since the last flush are appended to the data file
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean pendingDiscoveredChannelsWrite = new AtomicBoolean(false);
 
+    // Background history load; the cache is not written back until it completes
+    private static final long MIN_LOAD_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_LOAD_CHUNK_BYTES = 64L << 20;
+    private static final long PROGRESS_LOG_MIN_BYTES = 16L << 20;
+    private final CompletableFuture<Void> loadFuture;
+    // Latest line read so far per player, kept apart from the cache until every chunk is done
+    private final Map<UUID, PlayerChannelData> loadingRecords = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> loadingOffsets = new ConcurrentHashMap<>();
+
+    // The data file is an append log where the last line per player wins; it is compacted (fully rewritten) once
+    // superseded lines outnumber live records by COMPACTION_RATIO
+    private static final double COMPACTION_RATIO = 2.0;
+    private static final long COMPACTION_MIN_RECORDS = 1000;
+    private volatile File activeDataFile;
+    private volatile long fileRecordCount;
+
+    // Outside periodic mode, records logged within durability.group-commit-window-ms are written by one commit
+    private final Semaphore commitRequests = new Semaphore(0);
+    private final AtomicBoolean commitPending = new AtomicBoolean(false);
+    private final CommitStats commitStats = new CommitStats();
+    private volatile boolean committerRunning = true;
+    private Thread committer;
+
+    // Open sessions, checkpointed so a crash does not lose them; kept in the plugin folder even in shared mode
+    private final SessionCheckpoints checkpoints;
+
+    // Records the memory governor dropped from the cache, by the offset of their line in the (uncompressed) data file.
+    // Changing a record holds the read lock; evicting, and moving the file out from under the offsets, the write lock.
+    private final Map<UUID, Long> evictedOffsets = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock evictionLock = new ReentrantReadWriteLock();
+    // Channel names shared by records after compactSessions; capped, since clients can invent any number of them
+    private static final int MAX_SHARED_NAMES = 65536;
+    private final Map<String, String> sharedNames = new ConcurrentHashMap<>();
+    private static final String RECORD_PREFIX = "{\"uuid\":\"";
+    private boolean evictionUnsupportedWarned;
+
+    // Per-day player and session sketches for /md stats; fixed size, rewritten whole on flush
+    private final PopularityStats stats = new PopularityStats();
+    private final File statsFile;
+
     public DetectionLogger(ModDetectorPlugin plugin) {
         this.plugin = plugin;
-        this.logFile = new File(plugin.getDataFolder(), "detections.json");
-        this.discoveredChannelsFile = new File(plugin.getDataFolder(), "discovered-channels.json");
+        ModFilterConfig config = plugin.getModFilterConfig();
+        if (config.isSharedStorageEnabled()) {
+            this.sharedStore = new SharedDetectionStore(plugin.getLogger(),
+                    new File(config.getSharedStorageDirectory()).toPath(), resolveNodeId(config.getSharedStorageNodeId()),
+                    this::indexRecord);
+            this.logFile = sharedStore.dataFile(false);
+            this.compressedLogFile = sharedStore.dataFile(true);
+            this.discoveredChannelsFile = sharedStore.discoveredChannelsFile();
+            this.modSetsFile = sharedStore.modSetsFile();
+            this.statsFile = new File(config.getSharedStorageDirectory(), sharedStore.getNodeId() + ".stats.bin");
+            plugin.getLogger().info("Using shared detection store at " + config.getSharedStorageDirectory()
+                    + " as node '" + sharedStore.getNodeId() + "'");
+        } else {
+            this.sharedStore = null;
+            this.logFile = new File(plugin.getDataFolder(), "detections.json");
+            this.compressedLogFile = new File(plugin.getDataFolder(), "detections.json.gz");
+            this.discoveredChannelsFile = new File(plugin.getDataFolder(), "discovered-channels.json");
+            this.modSetsFile = new File(plugin.getDataFolder(), "modsets.json");
+            this.statsFile = new File(plugin.getDataFolder(), "stats.bin");
+        }
         ensureFilesExist();
-        loadExistingData();
+        loadDiscoveredChannels();
+        loadModSets();
+        loadStats();
+        this.checkpoints = new SessionCheckpoints(plugin.getLogger(), new File(plugin.getDataFolder(), "open-sessions.json"));
+        List<SessionCheckpoints.Session> openSessions = checkpoints.recover();
+        // Part of the load, so nothing is flushed before the recovered sessions are logged
+        this.loadFuture = openSessions.isEmpty()
+                ? loadPlayerDataAsync()
+                : loadPlayerDataAsync().thenRun(() -> recoverSessions(openSessions));
         startBatchedWriteScheduler();
     }
 
+    /**
+     * Uses the configured node ID, or one generated once and kept in the plugin folder so it survives restarts.
+     */
+    private String resolveNodeId(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return configured.replaceAll("[^A-Za-z0-9_-]", "_");
+        }
+        File idFile = new File(plugin.getDataFolder(), "node-id");
+        try {
+            if (idFile.exists()) {
+                String stored = Files.readString(idFile.toPath()).trim();
+                if (!stored.isEmpty()) {
+                    return stored;
+                }
+            }
+            String generated = "node-" + UUID.randomUUID().toString().substring(0, 8);
+            plugin.getDataFolder().mkdirs();
+            Files.writeString(idFile.toPath(), generated);
+            return generated;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to persist shared storage node ID: " + e.getMessage());
+            return "node-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+    }
+
     private void ensureFilesExist() {
         if (!plugin.getDataFolder().exists()) {
             plugin.getDataFolder().mkdirs();
         }
+        if (!logFile.getParentFile().exists()) {
+            logFile.getParentFile().mkdirs();
+        }
 
         try {
             if (!logFile.exists()) {
@@ -74,13 +216,17 @@ public class DetectionLogger {
         }
     }
 
-    private void loadExistingData() {
-        // Load discovered channels
-        if (discoveredChannelsFile.exists() && discoveredChannelsFile.length() > 0) {
+    private void loadDiscoveredChannels() {
+        File source = discoveredChannelsFile;
+        if (sharedStore != null && source.length() == 0) {
+            // First start in shared mode: carry over this server's own history
+            source = new File(plugin.getDataFolder(), "discovered-channels.json");
+            pendingDiscoveredChannelsWrite.set(true);
+        }
+        if (source.exists() && source.length() > 0) {
             try {
-                String content = Files.readString(discoveredChannelsFile.toPath());
-                Type setType = new TypeToken<Set<String>>() {}.getType();
-                Set<String> loaded = GSON.fromJson(content, setType);
+                String content = Files.readString(source.toPath());
+                Set<String> loaded = GSON.fromJson(content, STRING_SET_TYPE);
                 if (loaded != null) {
                     discoveredChannels.addAll(loaded);
                 }
@@ -88,179 +234,1008 @@ public class DetectionLogger {
                 plugin.getLogger().warning("Failed to load discovered channels: " + e.getMessage());
             }
         }
+    }
 
-        // Load player data (JSON lines format)
-        if (logFile.exists() && logFile.length() > 0) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = line.trim();
-                    if (line.isEmpty()) continue;
-                    try {
-                        PlayerChannelData data = GSON.fromJson(line, PlayerChannelData.class);
-                        if (data != null && data.uuid != null) {
-                            playerDataCache.put(data.uuid, data);
-                        }
-                    } catch (Exception e) {
-                        // Skip malformed lines
+    /**
+     * Reads the stats sketches saved by the last flush; without them the stats start empty.
+     */
+    private void loadStats() {
+        if (!statsFile.exists()) {
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(statsFile.toPath()))) {
+            stats.read(in);
+        } catch (IOException e) {
+            // Only estimates; they fill up again from new sessions
+            plugin.getLogger().warning("Failed to read " + statsFile.getName() + ", starting stats afresh: " + e.getMessage());
+        }
+    }
+
+    private void writeStats() {
+        byte[] snapshot = stats.snapshotIfDirty();
+        if (snapshot == null) {
+            return;
+        }
+        File tempFile = new File(statsFile.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), snapshot);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write stats: " + e.getMessage());
+            return;
+        }
+        moveIntoPlace(tempFile, statsFile, "stats");
+    }
+
+    /**
+     * Reads the mod set dictionary before any record that refers to it. It only holds distinct mod sets, so it is
+     * small enough to read up front.
+     */
+    private void loadModSets() {
+        readModSetFile(modSetsFile, true);
+        if (sharedStore != null) {
+            // First start in shared mode: the migrated history may refer to this server's old dictionary
+            readModSetFile(new File(plugin.getDataFolder(), "modsets.json"), false);
+        }
+    }
+
+    private void readModSetFile(File file, boolean own) {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        int read = 0;
+        int malformed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (DetectionTypeAdapters.readModSet(line, own) != null) {
+                    read++;
+                } else {
+                    malformed++;
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to read " + file.getName() + ": " + e.getMessage());
+        }
+        if (malformed > 0) {
+            // Usually a partial last line from a crash mid-append
+            plugin.getLogger().warning("Skipped " + malformed + " malformed line(s) in " + file.getName());
+        }
+        if (plugin.getModFilterConfig().isDebug()) {
+            plugin.getLogger().info("[DEBUG] Read " + read + " mod sets from " + file.getName());
+        }
+    }
+
+    /**
+     * Loads detections.json (JSON lines format) in the background so enabling is not held up by a large history.
+     * The file is split on newline boundaries and the chunks are parsed in parallel; the latest line per player is
+     * moved into the cache once all of them are done.
+     */
+    private CompletableFuture<Void> loadPlayerDataAsync() {
+        File source = selectDataFileToLoad();
+        if (source == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Supplier<Boolean> load = source.getName().endsWith(".gz")
+                ? () -> loadCompressedPlayerData(source)
+                : () -> loadPlayerData(source, pool, parallelism);
+        return CompletableFuture.supplyAsync(load, pool)
+                .handle((clean, error) -> {
+                    pool.shutdown();
+                    publishLoadedRecords();
+                    long unresolved = DetectionTypeAdapters.unresolvedModSets.getAndSet(0);
+                    if (unresolved > 0) {
+                        plugin.getLogger().warning(unresolved + " mod set reference(s) were missing from "
+                                + modSetsFile.getName() + " and were read as no mods");
+                    }
+                    if (error != null) {
+                        plugin.getLogger().warning("Failed to load existing player data: " + error.getMessage());
+                    } else if (clean) {
+                        // Safe to keep appending; otherwise the first flush rewrites the file from scratch
+                        activeDataFile = source;
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Prefers the file matching the configured compression, falling back to the other one so switching
+     * {@code storage-compression} keeps the existing history.
+     */
+    private File selectDataFileToLoad() {
+        boolean gzip = plugin.getModFilterConfig().getStorageCompression() == ModFilterConfig.StorageCompression.GZIP;
+        List<File> candidates = new ArrayList<>(List.of(
+                gzip ? compressedLogFile : logFile,
+                gzip ? logFile : compressedLogFile));
+        if (sharedStore != null) {
+            // First start in shared mode: migrate this server's own history into its node file
+            candidates.add(new File(plugin.getDataFolder(), gzip ? "detections.json.gz" : "detections.json"));
+            candidates.add(new File(plugin.getDataFolder(), gzip ? "detections.json" : "detections.json.gz"));
+        }
+        for (File candidate : candidates) {
+            if (candidate.exists() && candidate.length() > 0) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the file ended cleanly on a newline, so further records can be appended to it
+     */
+    private boolean loadPlayerData(File source, ForkJoinPool pool, int parallelism) {
+        long start = System.nanoTime();
+        AtomicLong bytesRead = new AtomicLong();
+        AtomicLong recordsRead = new AtomicLong();
+        AtomicInteger lastLoggedDecile = new AtomicInteger();
+
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.clamp(size / (parallelism * 4L), MIN_LOAD_CHUNK_BYTES, MAX_LOAD_CHUNK_BYTES);
+            List<long[]> chunks = splitOnNewlines(channel, size, chunkSize);
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+            for (long[] chunk : chunks) {
+                tasks.add(pool.submit(() -> {
+                    long records = loadChunk(channel, chunk[0], chunk[1]);
+                    recordsRead.addAndGet(records);
+                    long done = bytesRead.addAndGet(chunk[1] - chunk[0]);
+
+                    // Log progress every 10% on large files
+                    int decile = (int) (done * 10 / size);
+                    int previous = lastLoggedDecile.get();
+                    if (size >= PROGRESS_LOG_MIN_BYTES && decile > previous && decile < 10
+                            && lastLoggedDecile.compareAndSet(previous, decile)) {
+                        plugin.getLogger().info("Loading detections.json: " + (decile * 10) + "% ("
+                                + recordsRead.get() + " records)");
                     }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+
+            double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1_000_000_000.0);
+            double megabytes = size / 1048576.0;
+            plugin.getLogger().info(String.format("Loaded %d player records (%.1f MB) in %d ms using %d threads (%.1f MB/s, %.0f records/s)",
+                    recordsRead.get(), megabytes, (long) (seconds * 1000), parallelism,
+                    megabytes / seconds, recordsRead.get() / seconds));
+
+            fileRecordCount = recordsRead.get();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, size - 1) == 1 && last.get(0) == '\n';
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gzip streams cannot be split, so compressed history is parsed sequentially on the loader thread.
+     */
+    private boolean loadCompressedPlayerData(File source) {
+        long start = System.nanoTime();
+        long records = 0;
+        long lineNumber = 0;
+        boolean clean = true;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(source.toPath()), IO_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && mergeLoadedRecord(line, lineNumber)) {
+                    records++;
+                }
+                lineNumber++;
+            }
+        } catch (EOFException | ZipException e) {
+            // A flush was cut short (e.g. crash mid-append); keep what was readable and rewrite on next flush
+            plugin.getLogger().warning("detections.json.gz ends with a truncated or corrupt block, recovered "
+                    + records + " records");
+            clean = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1_000_000_000.0);
+        plugin.getLogger().info(String.format("Loaded %d player records from %s (%.1f MB compressed) in %d ms (%.0f records/s)",
+                records, source.getName(), source.length() / 1048576.0, (long) (seconds * 1000), records / seconds));
+        fileRecordCount = records;
+        return clean;
+    }
+
+    /**
+     * Splits the file into [start, end) ranges of roughly {@code chunkSize} bytes, each ending just after a newline.
+     */
+    private static List<long[]> splitOnNewlines(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Advance to just past the next newline so no line straddles two chunks
+            scan:
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        end += i + 1;
+                        break scan;
+                    }
+                }
+                end += read;
+            }
+            end = Math.min(end, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private long loadChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] line = new byte[8192];
+        long records = 0;
+        int lineStart = 0;
+        int limit = buffer.limit();
+
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            int length = i - lineStart;
+            if (length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                buffer.get(lineStart, line, 0, length);
+                String json = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+                if (!json.isEmpty() && mergeLoadedRecord(json, start + lineStart)) {
+                    records++;
                 }
-            } catch (IOException e) {
-                plugin.getLogger().warning("Failed to load existing player data: " + e.getMessage());
             }
+            lineStart = i + 1;
+        }
+        return records;
+    }
+
+    /**
+     * Keeps one parsed line if it is the latest seen so far for its player. Chunks finish in any order, so the line
+     * offset decides, not arrival.
+     */
+    private boolean mergeLoadedRecord(String json, long offset) {
+        PlayerChannelData loaded = parsePlayerData(json);
+        if (loaded == null) {
+            return false;
         }
+        // Superseded lines only ever add candidates, which searches verify against the final record anyway
+        indexRecord(loaded);
+
+        loadingRecords.compute(loaded.uuid, (uuid, existing) -> {
+            if (existing == null || loadingOffsets.get(uuid) < offset) {
+                loadingOffsets.put(uuid, offset);
+                return loaded;
+            }
+            return existing;
+        });
+        return true;
+    }
+
+    /**
+     * Moves the loaded history into the cache. A record created live while the history was still loading keeps its
+     * changes and gets the player's latest history line put in front of it.
+     */
+    private void publishLoadedRecords() {
+        int channelLimit = plugin.getModFilterConfig().getMaxStoredChannelsPerPlayer();
+        loadingRecords.forEach((uuid, loaded) ->
+                playerDataCache.merge(uuid, loaded, (live, history) -> prependHistory(history, live, channelLimit)));
+        loadingRecords.clear();
+        loadingOffsets.clear();
+    }
+
+    private void indexRecord(PlayerChannelData data) {
+        index.indexRecord(data);
+        usernames.index(data);
+    }
+
+    /**
+     * Parses one detections.json line, or returns null if it is malformed or has no UUID.
+     */
+    static PlayerChannelData parsePlayerData(String json) {
+        try {
+            PlayerChannelData data = GSON.fromJson(json, PlayerChannelData.class);
+            return data != null && data.uuid != null ? data : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static PlayerChannelData prependHistory(PlayerChannelData history, PlayerChannelData live, int channelLimit) {
+        if (history.previousNames != null || !Objects.equals(history.username, live.username)) {
+            Set<String> names = new LinkedHashSet<>();
+            if (history.previousNames != null) names.addAll(history.previousNames);
+            if (history.username != null) names.add(history.username);
+            if (live.previousNames != null) names.addAll(live.previousNames);
+            names.remove(live.username);
+            live.previousNames = names.isEmpty() ? null : names;
+        }
+
+        live.mods = ModSet.union(history.mods, live.mods);
+
+        Set<String> liveChannels = live.channels;
+        live.channels = new LinkedHashSet<>();
+        live.mergeOmitted(history.omittedChannels);
+        if (history.channels != null) addChannelsCapped(live, history.channels, channelLimit);
+        if (liveChannels != null) addChannelsCapped(live, liveChannels, channelLimit);
+
+        if (history.firstSeen != 0) {
+            live.firstSeen = history.firstSeen;
+        }
+        live.totalTimePlayedSeconds += history.totalTimePlayedSeconds;
+        live.sessionCount += history.sessionCount;
+
+        List<SessionRecord> sessions = new ArrayList<>();
+        if (history.sessions != null) sessions.addAll(history.sessions);
+        if (live.sessions != null) sessions.addAll(live.sessions);
+        live.sessions = sessions;
+        return live;
     }
 
     private void startBatchedWriteScheduler() {
-        // Flush pending writes every 30 seconds (600 ticks)
-        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::flushPendingWrites, 600L, 600L);
+        // Checkpoint open sessions every 5 seconds (100 ticks); most passes write nothing
+        plugin.getScheduling().runAsyncTimer(this::checkpointSessions, 100L, 100L);
+
+        // Flush pending writes every 30 seconds (600 ticks); in the other durability modes this only catches the
+        // discovered channels and stats, which are not worth rewriting per commit
+        plugin.getScheduling().runAsyncTimer(this::flushPendingWrites, 600L, 600L);
+
+        // Started in every mode so a reload can switch modes; it just waits while nothing asks for a commit
+        committer = new Thread(this::runCommitter, "ModDetector-GroupCommit");
+        committer.setDaemon(true);
+        committer.start();
+
+        if (sharedStore != null) {
+            long pollTicks = Math.max(20L, plugin.getModFilterConfig().getSharedStoragePollSeconds() * 20L);
+            plugin.getScheduling().runAsyncTimer(sharedStore::poll, 1L, pollTicks);
+        }
     }
 
-    private void flushPendingWrites() {
-        if (pendingPlayerDataWrite.compareAndSet(true, false)) {
-            writePlayerDataAtomic();
+    private synchronized void flushPendingWrites() {
+        // Writing before the history is loaded would truncate detections.json
+        if (!loadFuture.isDone()) {
+            return;
         }
+        // Sessions closed before this commit are in it, so their checkpoints can go once it succeeds
+        int closedSessions = checkpoints.closingCount();
+        boolean committed = commitDirtyPlayers();
         if (pendingDiscoveredChannelsWrite.compareAndSet(true, false)) {
             writeDiscoveredChannelsAtomic();
         }
+        writeStats();
+        if (committed) {
+            checkpoints.compact(closedSessions, isForced());
+        }
     }
 
-    public void logChannelRegistration(Player player, String channel, Instant joinTime) {
-        if (!plugin.getModFilterConfig().isLogAllChannels()) {
-            return;
+    /**
+     * Writes every dirty player in one commit, forced to disk only in group-commit mode.
+     *
+     * @return false if the commit failed and the players are still dirty
+     */
+    private synchronized boolean commitDirtyPlayers() {
+        if (!loadFuture.isDone()) {
+            return false;
+        }
+        if (dirtyPlayers.isEmpty()) {
+            return true;
+        }
+        return needsCompaction() ? writePlayerDataAtomic(isForced()) : appendDirtyPlayers(isForced());
+    }
+
+    /**
+     * Only group-commit fsyncs; periodic keeps the 30-second flush's old behaviour of leaving writes to the OS.
+     */
+    private boolean isForced() {
+        return plugin.getModFilterConfig().getDurability() == ModFilterConfig.Durability.GROUP_COMMIT;
+    }
+
+    private void checkpointSessions() {
+        ModFilterConfig config = plugin.getModFilterConfig();
+        if (config.isSessionCheckpointsEnabled()) {
+            checkpoints.checkpoint(Instant.now().getEpochSecond(), config.getSessionCheckpointIntervalSeconds(), isForced());
+        }
+    }
+
+    /**
+     * Starts checkpointing a session so a crash before the player leaves does not lose it. {@code channels} is the
+     * listener's live channel set for the session; it is only read.
+     */
+    public void openSession(UUID uuid, String username, Instant joinTime, Set<String> channels) {
+        if (plugin.getModFilterConfig().isSessionCheckpointsEnabled() && plugin.getModFilterConfig().isTrackDetections()) {
+            checkpoints.open(uuid, username, joinTime.getEpochSecond(), channels);
+        }
+    }
+
+    /**
+     * Called once the session has been passed to {@link #logDetection}.
+     */
+    public void closeSession(UUID uuid, Instant leaveTime) {
+        checkpoints.close(uuid, leaveTime.getEpochSecond());
+    }
+
+    /**
+     * Logs the sessions a crash left open, each ending at its last checkpoint. Runs once the history is loaded, so
+     * sessions that did make it into the history before the crash can be recognised and skipped.
+     */
+    private void recoverSessions(List<SessionCheckpoints.Session> sessions) {
+        int recovered = 0;
+        try {
+            for (SessionCheckpoints.Session session : sessions) {
+                PlayerChannelData data = lookupRecord(session.uuid);
+                if (data != null && data.sessions != null
+                        && data.sessions.stream().anyMatch(s -> s.joinTime == session.joinTime)) {
+                    continue;
+                }
+                Set<String> mods = new LinkedHashSet<>();
+                Set<String> unknownChannels = new LinkedHashSet<>();
+                for (String channel : session.channels) {
+                    String modName = plugin.getModFilterConfig().getModName(channel);
+                    if (!modName.equals(channel)) {
+                        mods.add(modName);
+                    } else {
+                        unknownChannels.add(channel);
+                    }
+                }
+                logDetection(session.uuid, session.name, mods, unknownChannels, Instant.ofEpochSecond(session.joinTime),
+                        Instant.ofEpochSecond(session.checkpointTime));
+                recovered++;
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Failed to recover open sessions: " + e);
         }
+        if (recovered > 0) {
+            plugin.getLogger().info("Recovered " + recovered + " session(s) left open by an unclean shutdown");
+        }
+    }
 
-        UUID uuid = player.getUniqueId();
-        String username = player.getName();
+    /**
+     * Wakes the committer after a record changed. A no-op in periodic mode, and while a commit is already waiting,
+     * since that one will pick this record up too.
+     */
+    private void requestCommit() {
+        if (plugin.getModFilterConfig().getDurability() != ModFilterConfig.Durability.PERIODIC
+                && commitPending.compareAndSet(false, true)) {
+            commitRequests.release();
+        }
+    }
 
-        PlayerChannelData data = playerDataCache.computeIfAbsent(uuid,
-                k -> new PlayerChannelData(uuid, username));
-        data.username = username;
-        data.lastSeen = TIMESTAMP_FORMAT.format(Instant.now());
+    private void runCommitter() {
+        while (true) {
+            try {
+                commitRequests.acquire();
+                if (!committerRunning) {
+                    return;
+                }
+                // Let the rest of a burst of quits join this commit
+                Thread.sleep(plugin.getModFilterConfig().getGroupCommitWindowMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Cleared before writing: a record changed from here on gets a commit of its own
+            commitPending.set(false);
+            try {
+                commitDirtyPlayers();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Group commit failed: " + e);
+            }
+        }
+    }
+
+    public void logChannelRegistration(UUID uuid, String username, String channel, Instant joinTime) {
+        if (!plugin.getModFilterConfig().isLogAllChannels()) {
+            return;
+        }
 
         // Resolve channel to mod name
         String modName = plugin.getModFilterConfig().getModName(channel);
+        int channelLimit = plugin.getModFilterConfig().getMaxStoredChannelsPerPlayer();
+        long lastSeen = Instant.now().getEpochSecond();
+
+        // compute() keeps this atomic with the background history load merging into the same entry
+        updateRecord(uuid, (k, data) -> {
+            if (data == null) {
+                data = new PlayerChannelData(uuid, username);
+            }
+            data.rename(username);
+            data.lastSeen = lastSeen;
+
+            if (!modName.equals(channel)) {
+                // Known mod - switch to the canonical set that includes it
+                data.mods = ModSet.with(data.mods, modName);
+            } else {
+                // Unknown channel - add to channels set, or just count it once the record is full
+                addChannelsCapped(data, Set.of(channel), channelLimit);
+            }
+            return data;
+        });
+
+        usernames.add(username, uuid);
         if (!modName.equals(channel)) {
-            // Known mod - add to mods set
-            data.mods.add(modName);
+            index.indexMod(uuid, modName);
         } else {
-            // Unknown channel - add to channels set
-            data.channels.add(channel);
+            index.indexChannel(uuid, channel);
         }
 
-        boolean isNewChannel = discoveredChannels.add(channel);
-
-        // Mark for batched write instead of immediate write
-        pendingPlayerDataWrite.set(true);
+        boolean isNewChannel = addDiscoveredChannel(channel);
         if (isNewChannel) {
             pendingDiscoveredChannelsWrite.set(true);
         }
+        requestCommit();
     }
 
-    private static final int DELTA_THRESHOLD = 3; // Use delta if changes < this, otherwise full
-
-    public void logDetection(Player player, Set<String> sessionMods, Set<String> sessionChannels, Instant joinTime, Instant leaveTime) {
+    public void logDetection(UUID uuid, String username, Set<String> sessionMods, Set<String> sessionChannels,
+                             Instant joinTime, Instant leaveTime) {
         if (!plugin.getModFilterConfig().isTrackDetections()) {
             return;
         }
 
-        UUID uuid = player.getUniqueId();
-        String username = player.getName();
-        String timestamp = TIMESTAMP_FORMAT.format(Instant.now());
+        DetectionEvents.SessionClose event = new DetectionEvents.SessionClose();
+        event.begin();
+        long timestamp = Instant.now().getEpochSecond();
 
-        long sessionDurationSeconds = 0;
-        if (joinTime != null && leaveTime != null) {
-            sessionDurationSeconds = Duration.between(joinTime, leaveTime).getSeconds();
+        long sessionDurationSeconds = joinTime != null && leaveTime != null
+                ? Duration.between(joinTime, leaveTime).getSeconds()
+                : 0;
+
+        long joinEpoch = joinTime != null ? joinTime.getEpochSecond() : 0;
+        long leaveEpoch = leaveTime.getEpochSecond();
+
+        // Sessions with the same mods share one canonical set
+        ModSet currentMods = ModSet.of(sessionMods);
+
+        // A flood of random channels is stored as a sample plus a count
+        int limit = plugin.getModFilterConfig().getMaxStoredChannelsPerPlayer();
+        Set<String> storedChannels = sessionChannels;
+        int omittedChannels = 0;
+        if (sessionChannels != null && sessionChannels.size() > limit) {
+            storedChannels = sessionChannels.stream().limit(limit).collect(Collectors.toCollection(LinkedHashSet::new));
+            omittedChannels = sessionChannels.size() - limit;
         }
+        Set<String> channels = storedChannels;
+        // The player's record counts distinct channels it could not keep, so it sees every channel of the session
+        Set<String> allChannels = sessionChannels;
+        int omitted = omittedChannels;
+        // Filled in by compute() for the JFR event
+        String[] deltaType = {"new"};
+        int[] sessionCount = {1};
+
+        // Get or create player data; compute() keeps this atomic with the background history load
+        updateRecord(uuid, (k, existingData) -> {
+            if (existingData != null) {
+                int lastIndex = existingData.sessions != null ? existingData.sessions.size() - 1 : -1;
+                Set<String> previousMods = getModsForSession(existingData.sessions, lastIndex);
+                SessionRecord session = SessionRecord.full(joinEpoch, leaveEpoch, sessionDurationSeconds, currentMods, channels);
+                session.channelsOmitted = omitted;
+
+                // Update existing player record
+                existingData.rename(username);
+                existingData.lastSeen = timestamp;
+                existingData.totalTimePlayedSeconds += sessionDurationSeconds;
+                existingData.sessionCount++;
+
+                // Merge mods and channels into aggregate sets
+                existingData.mods = ModSet.union(existingData.mods, currentMods);
+                if (allChannels != null) {
+                    addChannelsCapped(existingData, allChannels, limit);
+                }
 
-        String joinTimeStr = joinTime != null ? TIMESTAMP_FORMAT.format(joinTime) : null;
-        String leaveTimeStr = TIMESTAMP_FORMAT.format(leaveTime);
+                if (existingData.sessions == null) {
+                    existingData.sessions = new ArrayList<>();
+                }
+                existingData.sessions.add(session);
+                deltaType[0] = currentMods == previousMods ? "unchanged" : "changed";
+                sessionCount[0] = existingData.sessionCount;
+
+                if (plugin.getModFilterConfig().isDebug()) {
+                    // Canonical sets: same mods means the same instance
+                    String change = currentMods == previousMods ? "unchanged" : "mod set " + currentMods.getIdHex();
+                    plugin.getLogger().info("[DEBUG] Updated detection record for " + username +
+                            " (session #" + existingData.sessionCount + ", " + change + ", mods: " + currentMods + ")");
+                }
+                return existingData;
+            } else {
+                // First detection - create new record with full mods
+                SessionRecord session = SessionRecord.full(joinEpoch, leaveEpoch, sessionDurationSeconds, currentMods, channels);
+                session.channelsOmitted = omitted;
+
+                PlayerChannelData newData = new PlayerChannelData(uuid, username);
+                newData.mods = currentMods;
+                if (allChannels != null) {
+                    addChannelsCapped(newData, allChannels, limit);
+                }
+                newData.lastSeen = timestamp;
+                newData.firstSeen = timestamp;
+                newData.totalTimePlayedSeconds = sessionDurationSeconds;
+                newData.sessionCount = 1;
+                newData.sessions = new ArrayList<>();
+                newData.sessions.add(session);
+
+                if (plugin.getModFilterConfig().isDebug()) {
+                    plugin.getLogger().info("[DEBUG] Created new detection record for " + username +
+                            " (mods: " + currentMods + ")");
+                }
+                return newData;
+            }
+        });
+
+        usernames.add(username, uuid);
+        index.indexSession(uuid, joinEpoch, currentMods, channels);
+        // The full channel set: the sketches stay the same size however many there are
+        stats.recordSession(uuid, leaveEpoch, currentMods, sessionChannels);
+        requestCommit();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionCount = sessionCount[0];
+            event.deltaType = deltaType[0];
+            event.mods = currentMods.size();
+            event.commit();
+        }
+    }
 
-        // Normalize nulls to empty sets for comparison
-        Set<String> currentMods = sessionMods != null ? sessionMods : new LinkedHashSet<>();
+    /**
+     * Applies a change to a player's record, first reading it back if it was evicted, and marks it for the next write.
+     * Eviction waits until both are done, so it can never drop a changed record that is not yet marked.
+     */
+    private void updateRecord(UUID uuid, BiFunction<UUID, PlayerChannelData, PlayerChannelData> update) {
+        evictionLock.readLock().lock();
+        try {
+            faultIn(uuid);
+            playerDataCache.compute(uuid, update);
+            dirtyPlayers.add(uuid);
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+    }
 
-        // Get or create player data
-        PlayerChannelData existingData = playerDataCache.get(uuid);
+    /**
+     * Puts an evicted record back in the cache. Caller holds the eviction read lock. If the record cannot be read, its
+     * offset is kept so the line stays in the data file.
+     */
+    private void faultIn(UUID uuid) {
+        if (evictedOffsets.isEmpty() || playerDataCache.containsKey(uuid)) {
+            return;
+        }
+        playerDataCache.computeIfAbsent(uuid, k -> {
+            Long offset = evictedOffsets.get(k);
+            PlayerChannelData data = offset != null ? readEvicted(k, offset) : null;
+            if (data != null) {
+                evictedOffsets.remove(k);
+            }
+            return data;
+        });
+    }
 
-        if (existingData != null) {
-            // Get previous session's mods to compute delta
-            Set<String> previousMods = getModsForSession(existingData.sessions, existingData.sessions.size() - 1);
+    /**
+     * The cached record, or an evicted one read from the data file without caching it again.
+     */
+    private PlayerChannelData lookupRecord(UUID uuid) {
+        PlayerChannelData cached = copyCached(uuid);
+        if (cached != null || evictedOffsets.isEmpty()) {
+            return cached;
+        }
+        evictionLock.readLock().lock();
+        try {
+            cached = copyCached(uuid);
+            if (cached != null) {
+                return cached;
+            }
+            Long offset = evictedOffsets.get(uuid);
+            return offset != null ? readEvicted(uuid, offset) : null;
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+    }
 
-            // Compute delta
-            Set<String> added = new LinkedHashSet<>(currentMods);
-            added.removeAll(previousMods);
-            Set<String> removed = new LinkedHashSet<>(previousMods);
-            removed.removeAll(currentMods);
+    /**
+     * A copy of the cached record, taken under the entry's lock; pipeline lanes keep changing the cached one.
+     */
+    private PlayerChannelData copyCached(UUID uuid) {
+        PlayerChannelData[] copy = {null};
+        playerDataCache.computeIfPresent(uuid, (k, data) -> {
+            copy[0] = data.copy();
+            return data;
+        });
+        return copy[0];
+    }
 
-            int totalChanges = added.size() + removed.size();
+    private PlayerChannelData readEvicted(UUID uuid, long offset) {
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            String line = readLine(channel, offset);
+            PlayerChannelData data = line != null ? parsePlayerData(line) : null;
+            if (data != null && uuid.equals(data.uuid)) {
+                return data;
+            }
+            plugin.getLogger().warning("Evicted record for " + uuid + " was not at its recorded offset in " + logFile.getName());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to read evicted record for " + uuid + ": " + e.getMessage());
+        }
+        return null;
+    }
 
-            // Create appropriate session record
-            SessionRecord session;
-            if (totalChanges == 0) {
-                // No changes - minimal record
-                session = SessionRecord.unchanged(joinTimeStr, leaveTimeStr, sessionDurationSeconds, sessionChannels);
-            } else if (totalChanges < DELTA_THRESHOLD) {
-                // Small change - use delta
-                session = SessionRecord.delta(joinTimeStr, leaveTimeStr, sessionDurationSeconds, added, removed, sessionChannels);
-            } else {
-                // Big change - use full
-                session = SessionRecord.full(joinTimeStr, leaveTimeStr, sessionDurationSeconds, currentMods, sessionChannels);
+    static String readLine(FileChannel channel, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return line.size() > 0 ? line.toString(StandardCharsets.UTF_8) : null;
             }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    line.write(buffer.array(), 0, i);
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+            }
+            line.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
 
-            // Update existing player record
-            existingData.username = username;
-            existingData.lastSeen = timestamp;
-            existingData.totalTimePlayedSeconds += sessionDurationSeconds;
-            existingData.sessionCount++;
+    void reportMemory(MemoryReport report) {
+        long cached = 0;
+        long[] recordBytes = {0};
+        for (UUID uuid : playerDataCache.keySet()) {
+            // Under the entry's lock, so a session being added cannot break the walk
+            playerDataCache.computeIfPresent(uuid, (k, data) -> {
+                recordBytes[0] += estimateRecord(data);
+                return data;
+            });
+            cached++;
+        }
+        report.add("Player records", cached, MemoryReport.hashEntries(cached) + recordBytes[0]);
+        report.add("Evicted record offsets", evictedOffsets.size(), MemoryReport.hashEntries(evictedOffsets.size())
+                + evictedOffsets.size() * (MemoryReport.UUID + MemoryReport.BOXED_LONG));
+        report.add("Shared channel names", sharedNames.size(), MemoryReport.hashEntries(sharedNames.size())
+                + MemoryReport.strings(sharedNames.keySet()));
+        report.add("Discovered channels", discoveredChannels.size(), MemoryReport.hashEntries(discoveredChannels.size())
+                + MemoryReport.strings(discoveredChannels));
+        index.reportMemory(report);
+        usernames.reportMemory(report);
+        report.add("Mod set table", ModSet.tableSize(), ModSet.estimateTableBytes());
+        report.add("Popularity stats", PopularityStats.DAYS, stats.estimateBytes());
+        if (sharedStore != null) {
+            sharedStore.reportMemory(report, this::estimateRecord);
+        }
+        report.add("Open session checkpoints", checkpoints.size(),
+                MemoryReport.hashEntries(checkpoints.size()) + checkpoints.size() * (MemoryReport.OBJECT + 32));
+    }
 
-            // Merge mods and channels into aggregate sets
-            existingData.mods.addAll(currentMods);
-            if (sessionChannels != null) {
-                existingData.channels.addAll(sessionChannels);
+    private long estimateRecord(PlayerChannelData data) {
+        // Header, ten fields and the UUID
+        long bytes = MemoryReport.OBJECT + 56 + MemoryReport.UUID + MemoryReport.string(data.username);
+        if (data.previousNames != null) {
+            bytes += MemoryReport.linkedHashEntries(data.previousNames.size()) + MemoryReport.strings(data.previousNames);
+        }
+        bytes += channelSetBytes(data.channels);
+        if (data.omittedChannels != null) {
+            bytes += MemoryReport.OBJECT + 16 + HyperLogLog.REGISTERS;
+        }
+        if (data.sessions != null) {
+            bytes += MemoryReport.arrayList(data.sessions.size());
+            for (SessionRecord session : data.sessions) {
+                // Mod sets are canonical and counted with the table
+                bytes += MemoryReport.OBJECT + 48 + channelSetBytes(session.channels);
             }
+        }
+        return bytes;
+    }
+
+    private long channelSetBytes(Set<String> channels) {
+        if (channels == null) {
+            return 0;
+        }
+        long bytes = MemoryReport.linkedHashEntries(channels.size());
+        for (String channel : channels) {
+            // Names shared through compactSessions are counted once, on their own line
+            if (sharedNames.get(channel) != channel) {
+                bytes += MemoryReport.string(channel);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Shrinks records without losing anything: session lists are trimmed to size and equal channel names across
+     * records are replaced by one shared instance. Records written from history each hold their own copies otherwise.
+     */
+    synchronized void compactSessions() {
+        for (UUID uuid : playerDataCache.keySet()) {
+            playerDataCache.computeIfPresent(uuid, (k, data) -> {
+                data.channels = shareNames(data.channels);
+                if (data.sessions instanceof ArrayList<SessionRecord> sessions) {
+                    sessions.trimToSize();
+                    for (SessionRecord session : sessions) {
+                        session.channels = shareNames(session.channels);
+                    }
+                }
+                return data;
+            });
+        }
+    }
 
-            if (existingData.sessions == null) {
-                existingData.sessions = new ArrayList<>();
+    private Set<String> shareNames(Set<String> channels) {
+        if (channels == null || channels.isEmpty()) {
+            return channels;
+        }
+        Set<String> shared = new LinkedHashSet<>();
+        for (String channel : channels) {
+            String name = sharedNames.get(channel);
+            if (name == null) {
+                name = sharedNames.size() < MAX_SHARED_NAMES ? sharedNames.computeIfAbsent(channel, n -> n) : channel;
             }
-            existingData.sessions.add(session);
+            shared.add(name);
+        }
+        return shared;
+    }
+
+    /**
+     * Drops other nodes' cold records from memory until about {@code bytes} are freed; see
+     * {@link SharedDetectionStore#evictColdRecords}.
+     *
+     * @return records evicted
+     */
+    int evictRemoteRecords(long bytes, Set<UUID> online) {
+        return sharedStore != null ? sharedStore.evictColdRecords(bytes, online, this::estimateRecord) : 0;
+    }
 
-            if (plugin.getModFilterConfig().isDebug()) {
-                String format = totalChanges == 0 ? "unchanged" : (totalChanges < DELTA_THRESHOLD ? "delta" : "full");
-                plugin.getLogger().info("[DEBUG] Updated detection record for " + username +
-                        " (session #" + existingData.sessionCount + ", format: " + format + ", mods: " + currentMods + ")");
+    /**
+     * Drops cold records from memory until about {@code bytes} are freed: players not in {@code online} whose latest
+     * state is already in the data file, least recently seen first. An evicted record is read back by seeking to its
+     * line, so this needs uncompressed storage.
+     *
+     * @return records evicted
+     */
+    synchronized int evictColdRecords(long bytes, Set<UUID> online) {
+        if (!loadFuture.isDone()) {
+            return 0;
+        }
+        // Anything changed must reach the file first, or its latest state would only exist in memory
+        if (!commitDirtyPlayers() || activeDataFile != logFile) {
+            if (!evictionUnsupportedWarned) {
+                evictionUnsupportedWarned = true;
+                plugin.getLogger().warning("Cold records can only be evicted with storage-compression: none");
             }
-        } else {
-            // First detection - create new record with full mods
-            SessionRecord session = SessionRecord.full(joinTimeStr, leaveTimeStr, sessionDurationSeconds, currentMods, sessionChannels);
+            return 0;
+        }
 
-            PlayerChannelData newData = new PlayerChannelData(uuid, username);
-            newData.mods = new LinkedHashSet<>(currentMods);
-            newData.channels = sessionChannels != null ? new LinkedHashSet<>(sessionChannels) : new LinkedHashSet<>();
-            newData.lastSeen = timestamp;
-            newData.firstSeen = timestamp;
-            newData.totalTimePlayedSeconds = sessionDurationSeconds;
-            newData.sessionCount = 1;
-            newData.sessions = new ArrayList<>();
-            newData.sessions.add(session);
+        List<PlayerChannelData> candidates = new ArrayList<>();
+        for (PlayerChannelData data : playerDataCache.values()) {
+            if (!online.contains(data.uuid) && !dirtyPlayers.contains(data.uuid)) {
+                candidates.add(data);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(data -> data.lastSeen));
+        Set<UUID> wanted = new HashSet<>();
+        long planned = 0;
+        for (PlayerChannelData data : candidates) {
+            if (planned >= bytes) break;
+            wanted.add(data.uuid);
+            planned += estimateRecord(data);
+        }
+        Map<UUID, Long> offsets = scanRecordOffsets(wanted);
 
-            playerDataCache.put(uuid, newData);
+        int evicted = 0;
+        long freed = 0;
+        evictionLock.writeLock().lock();
+        try {
+            for (PlayerChannelData data : candidates) {
+                if (freed >= bytes) break;
+                Long offset = offsets.get(data.uuid);
+                // Changed since the candidates were picked: its line in the file is no longer the latest
+                if (offset == null || dirtyPlayers.contains(data.uuid)) continue;
+                PlayerChannelData removed = playerDataCache.remove(data.uuid);
+                if (removed == null) continue;
+                evictedOffsets.put(data.uuid, offset);
+                freed += estimateRecord(removed);
+                evicted++;
+            }
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+        return evicted;
+    }
 
-            if (plugin.getModFilterConfig().isDebug()) {
-                plugin.getLogger().info("[DEBUG] Created new detection record for " + username +
-                        " (mods: " + currentMods + ")");
+    /**
+     * Finds the offset of the last line for each wanted player in the data file, which is the one a load would keep.
+     */
+    private Map<UUID, Long> scanRecordOffsets(Set<UUID> wanted) {
+        Map<UUID, Long> offsets = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return offsets;
+        }
+        byte[] expected = RECORD_PREFIX.getBytes(StandardCharsets.US_ASCII);
+        byte[] prefix = new byte[expected.length + 36];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(logFile.toPath()), IO_BUFFER_SIZE)) {
+            long position = 0;
+            long lineStart = 0;
+            int prefixLength = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    if (prefixLength == prefix.length && Arrays.equals(prefix, 0, expected.length, expected, 0, expected.length)) {
+                        try {
+                            UUID uuid = UUID.fromString(new String(prefix, expected.length, 36, StandardCharsets.US_ASCII));
+                            if (wanted.contains(uuid)) {
+                                offsets.put(uuid, lineStart);
+                            }
+                        } catch (IllegalArgumentException ignored) {
+                            // Not a record line
+                        }
+                    }
+                    lineStart = position + 1;
+                    prefixLength = 0;
+                } else if (prefixLength < prefix.length) {
+                    prefix[prefixLength++] = (byte) b;
+                }
+                position++;
             }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to scan " + logFile.getName() + " for eviction: " + e.getMessage());
+            return Map.of();
         }
+        return offsets;
+    }
 
-        // Mark for batched write
-        pendingPlayerDataWrite.set(true);
+    /**
+     * Formats an epoch-second timestamp for display, or "unknown" if it was never recorded.
+     */
+    public static String formatTimestamp(long epochSecond) {
+        return epochSecond != 0 ? TIMESTAMP_FORMAT.format(Instant.ofEpochSecond(epochSecond)) : "unknown";
+    }
+
+    /**
+     * Mods of the session following one with {@code previous} mods; the single-step form of
+     * {@link #getModsForSession} for walking a session list front to back. Never modifies {@code previous}, and the
+     * result must not be modified either.
+     */
+    public static Set<String> nextSessionMods(Set<String> previous, SessionRecord session) {
+        if (session.hasFull()) {
+            return session.mods;
+        }
+        if (session.hasDelta()) {
+            Set<String> mods = new LinkedHashSet<>(previous);
+            if (session.added != null) mods.addAll(session.added);
+            if (session.removed != null) mods.removeAll(session.removed);
+            return mods;
+        }
+        return previous;
     }
 
     /**
-     * Reconstructs the full mod set for a given session index by walking from the last full snapshot.
+     * Reconstructs the full mod set for a given session index by walking from the last full snapshot. Loaded and
+     * new sessions all hold their canonical set, so this is normally a single lookup. The result must not be modified.
      */
     public static Set<String> getModsForSession(List<SessionRecord> sessions, int sessionIndex) {
         if (sessions == null || sessions.isEmpty() || sessionIndex < 0 || sessionIndex >= sessions.size()) {
-            return new LinkedHashSet<>();
+            return ModSet.EMPTY;
+        }
+        if (sessions.get(sessionIndex).hasFull()) {
+            return sessions.get(sessionIndex).mods;
         }
 
         // Find the last full snapshot at or before sessionIndex
@@ -274,7 +1249,7 @@ public class DetectionLogger {
 
         if (lastFullIndex == -1) {
             // No full snapshot found - shouldn't happen if data is valid
-            return new LinkedHashSet<>();
+            return ModSet.EMPTY;
         }
 
         // Start with the full snapshot
@@ -301,122 +1276,673 @@ public class DetectionLogger {
         return mods;
     }
 
-    private void writePlayerDataAtomic() {
-        File tempFile = new File(logFile.getParentFile(), logFile.getName() + ".tmp");
-        try (PrintWriter writer = new PrintWriter(tempFile)) {
-            for (PlayerChannelData data : playerDataCache.values()) {
-                writer.println(GSON.toJson(data));
+    private boolean needsCompaction() {
+        if (!getLogFile().equals(activeDataFile)) {
+            // No appendable file yet, or storage-compression changed since it was written
+            return true;
+        }
+        long records = fileRecordCount + dirtyPlayers.size();
+        return records > COMPACTION_MIN_RECORDS && records > getPlayerCount() * COMPACTION_RATIO;
+    }
+
+    /**
+     * Appends the current state of every dirty player to the data file. Cost scales with the number of changed
+     * players, not with the size of the history.
+     */
+    private boolean appendDirtyPlayers(boolean force) {
+        File target = activeDataFile;
+        boolean gzip = target == compressedLogFile;
+        List<UUID> drained = new ArrayList<>(dirtyPlayers.size());
+        DetectionEvents.StoreFlush event = new DetectionEvents.StoreFlush();
+        event.begin();
+        long sizeBefore = target.length();
+        long start = System.nanoTime();
+        try (ModSetAppender modSets = new ModSetAppender(force);
+             FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.APPEND);
+             OutputStream out = openDataOutput(channel, gzip);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+            JsonWriter json = newLineWriter(writer);
+            for (Iterator<UUID> it = dirtyPlayers.iterator(); it.hasNext(); ) {
+                UUID uuid = it.next();
+                // Remove before writing so a change made while we write marks the player dirty again
+                it.remove();
+                drained.add(uuid);
+                writeRecord(uuid, json, writer, modSets);
             }
-        } catch (IOException e) {
+            json.flush();
+            // The dictionary reaches the disk first, so a durable record never points at a lost mod set
+            modSets.sync();
+            sync(writer, out, channel, force);
+        } catch (IOException | UncheckedIOException e) {
+            plugin.getLogger().warning("Failed to append player data: " + e.getMessage());
+            // The tail may now be partial; retry these players with a full rewrite
+            dirtyPlayers.addAll(drained);
+            activeDataFile = null;
+            return false;
+        }
+        fileRecordCount += drained.size();
+        commitStats.record(drained.size(), System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "append";
+            event.records = drained.size();
+            event.bytes = target.length() - sizeBefore;
+            event.forced = force;
+            event.commit();
+        }
+
+        if (plugin.getModFilterConfig().isDebug()) {
+            plugin.getLogger().info("[DEBUG] Appended " + drained.size() + " changed player records to " + target.getName());
+        }
+        return true;
+    }
+
+    /**
+     * Compacts the data file: streams every record through the type adapters straight into a buffered (optionally
+     * gzip) stream, so a flush allocates no per-record JSON strings.
+     */
+    private boolean writePlayerDataAtomic(boolean force) {
+        boolean gzip = plugin.getModFilterConfig().getStorageCompression() == ModFilterConfig.StorageCompression.GZIP;
+        File target = gzip ? compressedLogFile : logFile;
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        if (!evictedOffsets.isEmpty() && target != logFile) {
+            // Evicted records can only be copied between uncompressed files; bring them back to be rewritten
+            for (UUID uuid : List.copyOf(evictedOffsets.keySet())) {
+                evictionLock.readLock().lock();
+                try {
+                    faultIn(uuid);
+                } finally {
+                    evictionLock.readLock().unlock();
+                }
+            }
+            if (!evictedOffsets.isEmpty()) {
+                // Switching format would delete the only copy of the records that could not be read back
+                plugin.getLogger().warning("Not compacting to " + target.getName() + ": "
+                        + evictedOffsets.size() + " evicted record(s) could not be read back");
+                return false;
+            }
+        }
+        // Every record is about to be written, so nothing changed before this point stays dirty
+        dirtyPlayers.clear();
+        long written = 0;
+        Map<UUID, Long> moved = Map.of();
+        DetectionEvents.StoreFlush event = new DetectionEvents.StoreFlush();
+        event.begin();
+        long start = System.nanoTime();
+        try (ModSetAppender modSets = new ModSetAppender(force);
+             FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = openDataOutput(channel, gzip);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+            // Ahead of the cached records, so a record read back meanwhile and written below is the one a load keeps
+            moved = copyEvictedRecords(channel);
+            JsonWriter json = newLineWriter(writer);
+            for (UUID uuid : playerDataCache.keySet()) {
+                if (writeRecord(uuid, json, writer, modSets)) {
+                    written++;
+                }
+            }
+            json.flush();
+            modSets.sync();
+            // Forced before the rename, or a crash could leave the new name pointing at unwritten blocks
+            sync(writer, out, channel, force);
+        } catch (IOException | UncheckedIOException e) {
             plugin.getLogger().warning("Failed to write player data: " + e.getMessage());
+            dirtyPlayers.addAll(playerDataCache.keySet());
+            return false;
+        }
+
+        // Renamed under the write lock, so no evicted record is read through an offset into the other file
+        boolean placed;
+        evictionLock.writeLock().lock();
+        try {
+            placed = moveIntoPlace(tempFile, target, "player data");
+            if (placed && !moved.isEmpty()) {
+                // Only records still evicted move; the rest were read back while copying
+                moved.keySet().retainAll(evictedOffsets.keySet());
+                evictedOffsets.keySet().retainAll(moved.keySet());
+                evictedOffsets.putAll(moved);
+            }
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+        if (!placed) {
+            dirtyPlayers.addAll(playerDataCache.keySet());
+            return false;
+        }
+        activeDataFile = target;
+        fileRecordCount = written + moved.size();
+        commitStats.record(written, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "compaction";
+            event.records = written;
+            event.bytes = target.length();
+            event.forced = force;
+            event.commit();
+        }
+
+        // Drop the copy in the other format so a later start cannot load stale history
+        File stale = gzip ? logFile : compressedLogFile;
+        if (stale.length() > 0) {
+            try {
+                Files.deleteIfExists(stale.toPath());
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to remove stale " + stale.getName() + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies each evicted record's line unchanged from the current data file to {@code channel}.
+     *
+     * @return where each copied line now starts
+     */
+    private Map<UUID, Long> copyEvictedRecords(FileChannel channel) throws IOException {
+        if (evictedOffsets.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, Long> moved = new HashMap<>();
+        try (FileChannel source = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            for (Map.Entry<UUID, Long> entry : Map.copyOf(evictedOffsets).entrySet()) {
+                String line = readLine(source, entry.getValue());
+                if (line == null) {
+                    throw new IOException("evicted record for " + entry.getKey() + " is missing");
+                }
+                moved.put(entry.getKey(), channel.position());
+                ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Writes a player's current record as one line, first adding any mod sets it refers to that are not yet in this
+     * server's dictionary. Both happen inside compute(), so no session can slip in between them and leave the data
+     * file pointing at a set the dictionary does not have.
+     *
+     * @return whether the player still had a record
+     */
+    private boolean writeRecord(UUID uuid, JsonWriter json, Writer writer, ModSetAppender modSets) {
+        boolean[] written = {false};
+        playerDataCache.computeIfPresent(uuid, (k, data) -> {
+            try {
+                modSets.persist(data);
+                PLAYER_DATA_ADAPTER.write(json, data);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written[0] = true;
+            return data;
+        });
+        return written[0];
+    }
+
+    /**
+     * Appends new mod sets to the dictionary file, opened on first use. Each batch is flushed before the record
+     * that needs it is written, so the dictionary is always ahead of the data file.
+     */
+    private final class ModSetAppender implements AutoCloseable {
+        private final boolean force;
+        private FileChannel channel;
+        private Writer writer;
+        private JsonWriter json;
+        private final List<ModSet> pending = new ArrayList<>();
+
+        ModSetAppender(boolean force) {
+            this.force = force;
+        }
+
+        void persist(PlayerChannelData data) throws IOException {
+            collect(data.mods);
+            if (data.sessions != null) {
+                int count = data.sessions.size();
+                for (int i = 0; i < count; i++) {
+                    collect(data.sessions.get(i).mods);
+                }
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (writer == null) {
+                channel = FileChannel.open(modSetsFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+                json = newLineWriter(writer);
+            }
+            for (ModSet set : pending) {
+                DetectionTypeAdapters.writeModSet(json, set);
+                writer.write('\n');
+            }
+            json.flush();
+            pending.forEach(ModSet::markPersisted);
+            pending.clear();
+        }
+
+        private void collect(Set<String> mods) {
+            ModSet set = ModSet.of(mods);
+            if (!set.isPersisted() && !pending.contains(set)) {
+                pending.add(set);
+            }
+        }
+
+        /**
+         * Forces the sets written so far to disk, if this commit is durable.
+         */
+        void sync() throws IOException {
+            if (force && channel != null) {
+                channel.force(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    private static OutputStream openDataOutput(FileChannel channel, boolean gzip) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        // Appending to a gzip file adds a new member; GZIPInputStream reads concatenated members back as one stream
+        return gzip ? new GZIPOutputStream(out, IO_BUFFER_SIZE) : out;
+    }
+
+    /**
+     * Pushes everything written through {@code writer} into the file, and with {@code force} onto the disk.
+     */
+    private static void sync(Writer writer, OutputStream out, FileChannel channel, boolean force) throws IOException {
+        if (!force) {
             return;
         }
+        writer.flush();
+        if (out instanceof GZIPOutputStream gzip) {
+            // Completes the member; closing afterwards writes nothing more
+            gzip.finish();
+        }
+        channel.force(false);
+    }
 
+    private static JsonWriter newLineWriter(Writer writer) {
+        JsonWriter json = new JsonWriter(writer);
+        // One top-level object per line (JSON lines), which strict mode would reject
+        json.setStrictness(Strictness.LENIENT);
+        return json;
+    }
+
+    /**
+     * @return whether {@code target} now holds the new contents
+     */
+    private boolean moveIntoPlace(File tempFile, File target, String description) {
         try {
-            Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
         } catch (IOException e) {
-            plugin.getLogger().warning("Failed to atomically move player data file: " + e.getMessage());
+            plugin.getLogger().warning("Failed to atomically move " + description + " file: " + e.getMessage());
             try {
-                Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return true;
             } catch (IOException e2) {
-                plugin.getLogger().warning("Failed to move player data file: " + e2.getMessage());
+                plugin.getLogger().warning("Failed to move " + description + " file: " + e2.getMessage());
+                return false;
             }
         }
     }
 
     private void writeDiscoveredChannelsAtomic() {
         File tempFile = new File(discoveredChannelsFile.getParentFile(), discoveredChannelsFile.getName() + ".tmp");
-        try (PrintWriter writer = new PrintWriter(tempFile)) {
-            writer.println(GSON.toJson(discoveredChannels));
+        try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(discoveredChannels, STRING_SET_TYPE, writer);
+            writer.write('\n');
         } catch (IOException e) {
             plugin.getLogger().warning("Failed to write discovered channels: " + e.getMessage());
             return;
         }
 
-        try {
-            Files.move(tempFile.toPath(), discoveredChannelsFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            plugin.getLogger().warning("Failed to atomically move discovered channels file: " + e.getMessage());
-            try {
-                Files.move(tempFile.toPath(), discoveredChannelsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e2) {
-                plugin.getLogger().warning("Failed to move discovered channels file: " + e2.getMessage());
+        moveIntoPlace(tempFile, discoveredChannelsFile, "discovered channels");
+    }
+
+    /**
+     * Adds to the discovered channels unless channel-limits.max-discovered is reached.
+     *
+     * @return whether the channel was new and recorded
+     */
+    private boolean addDiscoveredChannel(String channel) {
+        if (discoveredChannels.size() >= plugin.getModFilterConfig().getMaxDiscoveredChannels()
+                && !discoveredChannels.contains(channel)) {
+            if (discoveredLimitWarned.compareAndSet(false, true)) {
+                plugin.getLogger().warning("Discovered channel limit (" + discoveredChannels.size()
+                        + ") reached; new channels are no longer recorded in " + discoveredChannelsFile.getName());
+            }
+            return false;
+        }
+        return discoveredChannels.add(channel);
+    }
+
+    /**
+     * Adds channels to a player's stored set up to {@code limit} (channel-limits.max-stored-per-player); the ones that
+     * do not fit go into the record's sketch of omitted channels, so seeing them again does not count them twice.
+     */
+    private static void addChannelsCapped(PlayerChannelData data, Collection<String> channels, int limit) {
+        if (data.channels == null) {
+            data.channels = new LinkedHashSet<>();
+        }
+        for (String channel : channels) {
+            if (data.channels.size() < limit || data.channels.contains(channel)) {
+                data.channels.add(channel);
+            } else {
+                data.omitChannel(channel);
             }
         }
     }
 
+    PopularityStats getStats() {
+        return stats;
+    }
+
     public Set<String> getDiscoveredChannels() {
-        return new HashSet<>(discoveredChannels);
+        Set<String> channels = new HashSet<>(discoveredChannels);
+        if (sharedStore != null) {
+            channels.addAll(sharedStore.getRemoteDiscoveredChannels());
+        }
+        return channels;
     }
 
+    /**
+     * The player's history, merged across nodes in shared mode. Always a copy, never the cached record.
+     */
     public PlayerChannelData getPlayerData(UUID uuid) {
-        return playerDataCache.get(uuid);
+        if (!loadFuture.isDone()) {
+            // History is still warming up; wait for it rather than show a partial record
+            loadFuture.join();
+        }
+        PlayerChannelData local = lookupRecord(uuid);
+        // In shared mode, fold in what other servers recorded for this player
+        return sharedStore != null ? sharedStore.mergeWithRemote(uuid, local) : local;
+    }
+
+    /**
+     * Resolves a UUID string or a current or previous username to a player with recorded history, or null. When
+     * several players have used the name, whoever uses it now wins, then whoever was seen most recently.
+     */
+    public UUID resolvePlayer(String nameOrUuid) {
+        try {
+            return UUID.fromString(nameOrUuid);
+        } catch (IllegalArgumentException ignored) {
+            // Not a UUID, look the name up
+        }
+        if (!loadFuture.isDone()) {
+            loadFuture.join();
+        }
+        UUID best = null;
+        boolean bestIsCurrent = false;
+        long bestSeen = Long.MIN_VALUE;
+        for (UUID uuid : usernames.lookup(nameOrUuid)) {
+            PlayerChannelData data = getPlayerData(uuid);
+            if (data == null) continue;
+            boolean isCurrent = nameOrUuid.equalsIgnoreCase(data.username);
+            if (best == null || (isCurrent && !bestIsCurrent) || (isCurrent == bestIsCurrent && data.lastSeen > bestSeen)) {
+                best = uuid;
+                bestIsCurrent = isCurrent;
+                bestSeen = data.lastSeen;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Known usernames (current and previous) starting with {@code prefix}, for command suggestions. Never blocks;
+     * while history is still loading only the part loaded so far is covered.
+     */
+    public List<String> completeUsernames(String prefix, int limit) {
+        return usernames.complete(prefix, limit);
+    }
+
+    /**
+     * Runs a search against the inverted indexes. Candidates come from intersecting the posting lists of every
+     * filter (smallest first) and are then checked against the player's merged record, so only matching players
+     * are ever read. Blocks while history is loading; call off the main thread.
+     */
+    public SearchQuery.Result search(SearchQuery query) {
+        long start = System.nanoTime();
+        if (!loadFuture.isDone()) {
+            loadFuture.join();
+        }
+
+        List<Set<UUID>> postings = new ArrayList<>();
+        if (query.playerUuid != null) postings.add(Set.of(query.playerUuid));
+        if (query.playerName != null) postings.add(usernames.lookup(query.playerName));
+        if (query.mod != null) postings.add(index.playersWithMod(query.mod));
+        if (query.channel != null) postings.add(index.playersWithChannel(query.channel));
+        if (query.hasTimeRange()) {
+            postings.add(index.playersActiveBetween(query.since, query.until != 0 ? query.until : Long.MAX_VALUE / 2));
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        List<SearchQuery.Hit> matches = new ArrayList<>();
+        int checked = 0;
+        for (UUID uuid : postings.getFirst()) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(uuid);
+            }
+            if (!inAll) continue;
+
+            checked++;
+            SearchQuery.Hit hit = verify(query, getPlayerData(uuid));
+            if (hit != null) {
+                matches.add(hit);
+            }
+        }
+
+        matches.sort(Comparator.comparingLong((SearchQuery.Hit h) -> h.data.lastSeen).reversed());
+        int pageCount = Math.max(1, (matches.size() + SearchQuery.PAGE_SIZE - 1) / SearchQuery.PAGE_SIZE);
+        int page = Math.min(query.page, pageCount);
+        int from = (page - 1) * SearchQuery.PAGE_SIZE;
+        List<SearchQuery.Hit> pageHits = new ArrayList<>(
+                matches.subList(from, Math.min(matches.size(), from + SearchQuery.PAGE_SIZE)));
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+        return new SearchQuery.Result(pageHits, matches.size(), page, pageCount, checked, tookMillis);
+    }
+
+    /**
+     * Checks an index candidate against its actual record. With a time range, mod and channel filters must hold
+     * within a session in that range; otherwise the player's aggregate sets are used.
+     */
+    private static SearchQuery.Hit verify(SearchQuery query, PlayerChannelData data) {
+        if (data == null) {
+            return null;
+        }
+        if (query.playerName != null && !query.playerName.equalsIgnoreCase(data.username)
+                && !containsIgnoreCase(data.previousNames, query.playerName)) {
+            return null;
+        }
+        if (!query.hasTimeRange()) {
+            if (query.mod != null && !containsIgnoreCase(data.mods, query.mod)) return null;
+            if (query.channel != null && !containsIgnoreCase(data.channels, query.channel)) return null;
+            return new SearchQuery.Hit(data, -1);
+        }
+
+        if (data.sessions == null) {
+            return null;
+        }
+        long until = query.until != 0 ? query.until : Long.MAX_VALUE;
+        int matching = 0;
+        Set<String> mods = Set.of();
+        for (int i = 0; i < data.sessions.size(); i++) {
+            // Replay the delta chain as we go instead of reconstructing every session from scratch
+            SessionRecord session = data.sessions.get(i);
+            mods = nextSessionMods(mods, session);
+            if (session.joinTime < query.since || session.joinTime > until) continue;
+            if (query.mod != null && !containsIgnoreCase(mods, query.mod)) continue;
+            if (query.channel != null && !containsIgnoreCase(session.channels, query.channel)) continue;
+            matching++;
+        }
+        return matching > 0 ? new SearchQuery.Hit(data, matching) : null;
+    }
+
+    private static boolean containsIgnoreCase(Set<String> values, String target) {
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (value.equalsIgnoreCase(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits every player with recorded history, merged across nodes in shared mode. Records are copied one at a
+     * time, so the caller never holds more than one player's history and can read it while lanes keep logging.
+     */
+    public void forEachPlayer(Consumer<PlayerChannelData> action) {
+        if (!loadFuture.isDone()) {
+            loadFuture.join();
+        }
+        for (UUID uuid : playerDataCache.keySet()) {
+            PlayerChannelData data = getPlayerData(uuid);
+            if (data != null) {
+                action.accept(data);
+            }
+        }
+        for (UUID uuid : evictedOffsets.keySet()) {
+            if (playerDataCache.containsKey(uuid)) continue;
+            PlayerChannelData data = getPlayerData(uuid);
+            if (data != null) {
+                action.accept(data);
+            }
+        }
+        if (sharedStore != null) {
+            Set<UUID> local = new HashSet<>(playerDataCache.keySet());
+            local.addAll(evictedOffsets.keySet());
+            sharedStore.forEachRemoteOnlyPlayer(local,
+                    uuid -> action.accept(sharedStore.mergeWithRemote(uuid, null)));
+        }
+    }
+
+    /**
+     * Number of players recorded by this server; a lower bound in shared mode.
+     */
+    public int getPlayerCount() {
+        return playerDataCache.size() + evictedOffsets.size();
+    }
+
+    public boolean isLoaded() {
+        return loadFuture.isDone();
     }
 
     public File getLogFile() {
-        return logFile;
+        return plugin.getModFilterConfig().getStorageCompression() == ModFilterConfig.StorageCompression.GZIP
+                ? compressedLogFile
+                : logFile;
+    }
+
+    public CommitStats getCommitStats() {
+        return commitStats;
     }
 
     public void shutdown() {
-        // Flush any pending writes on shutdown
+        // Not interrupted: that would close a FileChannel the committer is writing through
+        committerRunning = false;
+        commitRequests.release();
+        try {
+            committer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Flush any pending writes on shutdown, once the history has finished loading
+        loadFuture.join();
         flushPendingWrites();
     }
 
+    /**
+     * Latency and size of the data file commits since startup, for {@code /md status}.
+     */
+    public static class CommitStats {
+        private long commits;
+        private long records;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void record(long batch, long nanos) {
+            commits++;
+            records += batch;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public synchronized long getCommits() {
+            return commits;
+        }
+
+        public synchronized double getAverageBatch() {
+            return commits > 0 ? (double) records / commits : 0;
+        }
+
+        public synchronized double getAverageMillis() {
+            return commits > 0 ? totalNanos / 1e6 / commits : 0;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+    }
+
     // Session record for tracking individual play sessions
-    // Uses delta compression: first session has full 'mods', subsequent sessions use +/- or full if big change
+    // Every session holds its canonical mod set; older files stored deltas, which are resolved on load
     public static class SessionRecord {
-        public String joinTime;
-        public String leaveTime;
+        // Epoch seconds; 0 means unknown
+        public long joinTime;
+        public long leaveTime;
         public long durationSeconds;
-        // Full mod list (used for first session or when changes are large)
+        // Canonical mod set, shared with every other session that had the same mods
         public Set<String> mods;
-        // Delta fields (used when only small changes from previous session)
-        public Set<String> added;   // "+" in JSON would be nicer but this is clearer
+        // Delta fields, only set while reading files written before mod sets were introduced
+        public Set<String> added;
         public Set<String> removed;
-        // Channels (unknown) - always stored in full since they're typically few
+        // Channels (unknown), up to channel-limits.max-stored-per-player; the rest are only counted
         public Set<String> channels;
+        public int channelsOmitted;
 
         public SessionRecord() {}
 
-        // Constructor for full mod list
-        public static SessionRecord full(String joinTime, String leaveTime, long durationSeconds,
+        public static SessionRecord full(long joinTime, long leaveTime, long durationSeconds,
                                          Set<String> mods, Set<String> channels) {
             SessionRecord r = new SessionRecord();
             r.joinTime = joinTime;
             r.leaveTime = leaveTime;
             r.durationSeconds = durationSeconds;
-            r.mods = mods != null && !mods.isEmpty() ? new LinkedHashSet<>(mods) : null;
+            r.mods = ModSet.of(mods);
             r.channels = channels != null && !channels.isEmpty() ? new LinkedHashSet<>(channels) : null;
             return r;
         }
 
-        // Constructor for delta (added/removed)
-        public static SessionRecord delta(String joinTime, String leaveTime, long durationSeconds,
-                                          Set<String> added, Set<String> removed, Set<String> channels) {
-            SessionRecord r = new SessionRecord();
-            r.joinTime = joinTime;
-            r.leaveTime = leaveTime;
-            r.durationSeconds = durationSeconds;
-            r.added = added != null && !added.isEmpty() ? new LinkedHashSet<>(added) : null;
-            r.removed = removed != null && !removed.isEmpty() ? new LinkedHashSet<>(removed) : null;
-            r.channels = channels != null && !channels.isEmpty() ? new LinkedHashSet<>(channels) : null;
-            return r;
+        public boolean hasFull() {
+            return mods != null;
         }
 
-        // Constructor for unchanged mods (only time info)
-        public static SessionRecord unchanged(String joinTime, String leaveTime, long durationSeconds, Set<String> channels) {
+        SessionRecord copy() {
             SessionRecord r = new SessionRecord();
             r.joinTime = joinTime;
             r.leaveTime = leaveTime;
             r.durationSeconds = durationSeconds;
-            r.channels = channels != null && !channels.isEmpty() ? new LinkedHashSet<>(channels) : null;
+            r.mods = mods;
+            r.added = added != null ? new LinkedHashSet<>(added) : null;
+            r.removed = removed != null ? new LinkedHashSet<>(removed) : null;
+            r.channels = channels != null ? new LinkedHashSet<>(channels) : null;
+            r.channelsOmitted = channelsOmitted;
             return r;
         }
 
-        public boolean hasFull() {
-            return mods != null;
-        }
-
         public boolean hasDelta() {
             return added != null || removed != null;
         }
@@ -426,10 +1952,12 @@ public class DetectionLogger {
     public static class PlayerChannelData {
         public UUID uuid;
         public String username;
+        public Set<String> previousNames;                     // Earlier usernames, null if never renamed
         public Set<String> channels = new LinkedHashSet<>();  // For log-all-channels mode
-        public Set<String> mods = new LinkedHashSet<>();      // For detection tracking
-        public String firstSeen;
-        public String lastSeen;
+        HyperLogLog omittedChannels;                          // Distinct unknown channels past the storage limit
+        public Set<String> mods = ModSet.EMPTY;               // For detection tracking; canonical, never modified
+        public long firstSeen;  // Epoch seconds
+        public long lastSeen;
         public long totalTimePlayedSeconds;
         public int sessionCount;
         public List<SessionRecord> sessions;
@@ -441,5 +1969,66 @@ public class DetectionLogger {
             this.uuid = uuid;
             this.username = username;
         }
+
+        /**
+         * Sets the current username, remembering the old one if it changed.
+         */
+        public void rename(String newName) {
+            if (username != null && newName != null && !username.equals(newName)) {
+                if (previousNames == null) {
+                    previousNames = new LinkedHashSet<>();
+                }
+                previousNames.add(username);
+                previousNames.remove(newName);
+            }
+            username = newName;
+        }
+
+        void omitChannel(String channel) {
+            if (omittedChannels == null) {
+                omittedChannels = new HyperLogLog();
+            }
+            omittedChannels.add(HyperLogLog.hash(channel));
+        }
+
+        void mergeOmitted(HyperLogLog other) {
+            if (other == null) {
+                return;
+            }
+            if (omittedChannels == null) {
+                omittedChannels = other.copy();
+            } else {
+                omittedChannels.merge(other);
+            }
+        }
+
+        /**
+         * Estimated number of distinct unknown channels that did not fit in {@link #channels}.
+         */
+        public long getChannelsOmitted() {
+            return omittedChannels != null ? omittedChannels.estimate() : 0;
+        }
+
+        /**
+         * A copy that shares nothing mutable with this record; mod sets are canonical and never modified.
+         */
+        PlayerChannelData copy() {
+            PlayerChannelData c = new PlayerChannelData(uuid, username);
+            c.previousNames = previousNames != null ? new LinkedHashSet<>(previousNames) : null;
+            c.channels = channels != null ? new LinkedHashSet<>(channels) : null;
+            c.omittedChannels = omittedChannels != null ? omittedChannels.copy() : null;
+            c.mods = mods;
+            c.firstSeen = firstSeen;
+            c.lastSeen = lastSeen;
+            c.totalTimePlayedSeconds = totalTimePlayedSeconds;
+            c.sessionCount = sessionCount;
+            if (sessions != null) {
+                c.sessions = new ArrayList<>(sessions.size());
+                for (SessionRecord session : sessions) {
+                    c.sessions.add(session.copy());
+                }
+            }
+            return c;
+        }
     }
 }
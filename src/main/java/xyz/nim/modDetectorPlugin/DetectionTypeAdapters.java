@@ -0,0 +1,306 @@
+package xyz.nim.modDetectorPlugin;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hand-written Gson adapters for the detection records, so reading and writing detections.json streams field by
+ * field without reflection. Field names and order match what the reflective adapter used to produce; timestamps are
+ * written as epoch seconds but ISO-8601 strings from older files are still accepted.
+ *
+ * <p>Mod lists are written as {@link ModSet} IDs ({@code modSet}), and a session whose mods match the previous
+ * session's omits it. Older files with inline {@code mods} lists and {@code added}/{@code removed} deltas are still
+ * read and converted to canonical sets on load.
+ */
+final class DetectionTypeAdapters {
+
+    private DetectionTypeAdapters() {}
+
+    static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(DetectionLogger.SessionRecord.class, new SessionRecordAdapter().nullSafe())
+                .registerTypeAdapter(DetectionLogger.PlayerChannelData.class, new PlayerChannelDataAdapter().nullSafe());
+    }
+
+    static final class SessionRecordAdapter extends TypeAdapter<DetectionLogger.SessionRecord> {
+
+        @Override
+        public void write(JsonWriter out, DetectionLogger.SessionRecord r) throws IOException {
+            write(out, r, null);
+        }
+
+        /**
+         * Writes a session, leaving out its mod set if it is the same as {@code previous}.
+         */
+        void write(JsonWriter out, DetectionLogger.SessionRecord r, ModSet previous) throws IOException {
+            out.beginObject();
+            writeEpochSecond(out, "joinTime", r.joinTime);
+            writeEpochSecond(out, "leaveTime", r.leaveTime);
+            out.name("durationSeconds").value(r.durationSeconds);
+            ModSet mods = ModSet.of(r.mods);
+            if (mods != previous) {
+                out.name("modSet").value(mods.getIdHex());
+            }
+            writeSet(out, "channels", r.channels);
+            if (r.channelsOmitted > 0) {
+                out.name("channelsOmitted").value(r.channelsOmitted);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public DetectionLogger.SessionRecord read(JsonReader in) throws IOException {
+            DetectionLogger.SessionRecord r = new DetectionLogger.SessionRecord();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "joinTime" -> r.joinTime = readEpochSecond(in);
+                    case "leaveTime" -> r.leaveTime = readEpochSecond(in);
+                    case "durationSeconds" -> r.durationSeconds = in.nextLong();
+                    case "modSet" -> r.mods = readModSetId(in);
+                    case "mods" -> r.mods = readSet(in);
+                    case "added" -> r.added = readSet(in);
+                    case "removed" -> r.removed = readSet(in);
+                    case "channels" -> r.channels = readSet(in);
+                    case "channelsOmitted" -> r.channelsOmitted = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return r;
+        }
+    }
+
+    static final class PlayerChannelDataAdapter extends TypeAdapter<DetectionLogger.PlayerChannelData> {
+
+        private final SessionRecordAdapter sessionAdapter = new SessionRecordAdapter();
+
+        @Override
+        public void write(JsonWriter out, DetectionLogger.PlayerChannelData data) throws IOException {
+            out.beginObject();
+            if (data.uuid != null) {
+                out.name("uuid").value(data.uuid.toString());
+            }
+            writeString(out, "username", data.username);
+            writeSet(out, "previousNames", data.previousNames);
+            writeSet(out, "channels", data.channels);
+            if (data.omittedChannels != null) {
+                out.name("omittedChannels").value(Base64.getEncoder().encodeToString(data.omittedChannels.registers()));
+            }
+            out.name("modSet").value(ModSet.of(data.mods).getIdHex());
+            writeEpochSecond(out, "firstSeen", data.firstSeen);
+            writeEpochSecond(out, "lastSeen", data.lastSeen);
+            out.name("totalTimePlayedSeconds").value(data.totalTimePlayedSeconds);
+            out.name("sessionCount").value(data.sessionCount);
+            if (data.sessions != null) {
+                out.name("sessions").beginArray();
+                ModSet previous = null;
+                // Index loop: the live list may grow while a flush writes it, but never shrinks
+                int count = data.sessions.size();
+                for (int i = 0; i < count; i++) {
+                    DetectionLogger.SessionRecord session = data.sessions.get(i);
+                    sessionAdapter.write(out, session, previous);
+                    previous = ModSet.of(session.mods);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public DetectionLogger.PlayerChannelData read(JsonReader in) throws IOException {
+            DetectionLogger.PlayerChannelData data = new DetectionLogger.PlayerChannelData();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "uuid" -> data.uuid = UUID.fromString(in.nextString());
+                    case "username" -> data.username = in.nextString();
+                    case "previousNames" -> data.previousNames = readSet(in);
+                    case "channels" -> data.channels = readSet(in);
+                    case "omittedChannels" -> data.omittedChannels = readSketch(in);
+                    case "modSet" -> data.mods = readModSetId(in);
+                    case "mods" -> data.mods = ModSet.of(readSet(in));
+                    case "firstSeen" -> data.firstSeen = readEpochSecond(in);
+                    case "lastSeen" -> data.lastSeen = readEpochSecond(in);
+                    case "totalTimePlayedSeconds" -> data.totalTimePlayedSeconds = in.nextLong();
+                    case "sessionCount" -> data.sessionCount = in.nextInt();
+                    case "sessions" -> {
+                        data.sessions = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            if (in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                                continue;
+                            }
+                            data.sessions.add(sessionAdapter.read(in));
+                        }
+                        in.endArray();
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            canonicalizeSessions(data);
+            return data;
+        }
+    }
+
+    /**
+     * Gives every session its full canonical mod set: a session without one inherits the previous session's, and
+     * deltas from older files are applied and dropped.
+     */
+    private static void canonicalizeSessions(DetectionLogger.PlayerChannelData data) {
+        if (data.sessions == null) {
+            return;
+        }
+        Set<String> previous = ModSet.EMPTY;
+        for (DetectionLogger.SessionRecord session : data.sessions) {
+            ModSet mods = ModSet.of(DetectionLogger.nextSessionMods(previous, session));
+            session.mods = mods;
+            session.added = null;
+            session.removed = null;
+            previous = mods;
+        }
+    }
+
+    /**
+     * Reads a mod set ID; an ID missing from the dictionary (e.g. a lost modsets.json) reads as no mods.
+     */
+    private static ModSet readModSetId(JsonReader in) throws IOException {
+        String hex = in.nextString();
+        try {
+            ModSet set = ModSet.byId(ModSet.parseId(hex));
+            if (set != null) {
+                return set;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        unresolvedModSets.incrementAndGet();
+        return ModSet.EMPTY;
+    }
+
+    // Mod set IDs read that were not in the dictionary, reported after loading
+    static final AtomicLong unresolvedModSets = new AtomicLong();
+
+    /**
+     * Writes one dictionary line: {@code {"id":"<hex>","mods":[...]}}.
+     */
+    static void writeModSet(JsonWriter out, ModSet set) throws IOException {
+        out.beginObject();
+        out.name("id").value(set.getIdHex());
+        writeSet(out, "mods", set);
+        out.endObject();
+    }
+
+    /**
+     * Parses one dictionary line and registers the set, or returns null if the line is malformed.
+     *
+     * @param own whether the line comes from this server's own dictionary
+     */
+    static ModSet readModSet(String line, boolean own) {
+        try (JsonReader in = new JsonReader(new StringReader(line))) {
+            String id = null;
+            Set<String> mods = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = in.nextString();
+                    case "mods" -> mods = readSet(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return id != null && mods != null ? ModSet.register(ModSet.parseId(id), mods, own) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a base64 {@link HyperLogLog}; a damaged one is dropped rather than failing the whole record.
+     */
+    private static HyperLogLog readSketch(JsonReader in) throws IOException {
+        try {
+            return new HyperLogLog(Base64.getDecoder().decode(in.nextString()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeEpochSecond(JsonWriter out, String name, long epochSecond) throws IOException {
+        if (epochSecond != 0) {
+            out.name(name).value(epochSecond);
+        }
+    }
+
+    /**
+     * Reads a timestamp written either as epoch seconds or, by older versions, as an ISO-8601 string.
+     */
+    private static long readEpochSecond(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NUMBER) {
+            return in.nextLong();
+        }
+        String text = in.nextString();
+        try {
+            return Instant.parse(text).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private static void writeSet(JsonWriter out, String name, Set<String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static Set<String> readSet(JsonReader in) throws IOException {
+        Set<String> values = new LinkedHashSet<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+/**
+ * Runs the expensive part of event handling off the server thread.
+ *
+ * <p>Event handlers copy what they need out of the event (UUID, name, channel, permission checks) and submit the rest
+ * here. Each player is pinned to one lane, a single worker thread, so their registrations, kick and quit are handled
+ * in the order the events fired while different players proceed in parallel. With zero threads, work runs inline on
+ * the caller, which is the old behaviour.
+ */
+final class EventPipeline {
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    private final Logger logger;
+    private final ExecutorService[] lanes;
+    private final AtomicInteger queued = new AtomicInteger();
+    // Wraps each task as it is submitted; the load harness uses it to time work on the lanes
+    private volatile UnaryOperator<Runnable> decorator = UnaryOperator.identity();
+
+    EventPipeline(Logger logger, int threads) {
+        this.logger = logger;
+        this.lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "ModDetector-Events-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Queues work for a player behind everything already queued for them.
+     */
+    void submit(UUID uuid, Runnable work) {
+        Runnable task = decorator.apply(work);
+        if (lanes.length == 0) {
+            run(task);
+            return;
+        }
+        ExecutorService lane = lanes[Math.floorMod(uuid.hashCode(), lanes.length)];
+        queued.incrementAndGet();
+        lane.execute(() -> {
+            try {
+                run(task);
+            } finally {
+                queued.decrementAndGet();
+            }
+        });
+    }
+
+    private void run(Runnable work) {
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // An executor would swallow this silently
+            logger.warning("Event processing failed: " + e);
+        }
+    }
+
+    void setDecorator(UnaryOperator<Runnable> decorator) {
+        this.decorator = decorator;
+    }
+
+    int getThreadCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Number of submitted tasks not yet finished.
+     */
+    int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Stops accepting work and waits for what is queued, so quits handled just before shutdown still reach the
+     * history before its final flush.
+     */
+    void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warning("Event pipeline did not drain in time; " + queued.get() + " event(s) dropped");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
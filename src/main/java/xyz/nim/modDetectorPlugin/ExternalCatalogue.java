@@ -0,0 +1,348 @@
+package xyz.nim.modDetectorPlugin;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Mod definitions from a file or directory outside the jar, applied while the server runs.
+ *
+ * <p>The path is either one YAML file with a {@code mods:} section like the built-in {@code mods.yml}, or a directory
+ * of {@code .yml} files that each hold such a section or a single mod ({@code name}, {@code description},
+ * {@code channels}; the ID is the file name). A {@link WatchService} picks up edits; only the mods defined in the
+ * touched files are diffed, and only the ones that actually changed are recompiled and swapped in.
+ */
+final class ExternalCatalogue {
+
+    /**
+     * A loaded mod with its channel patterns compiled.
+     */
+    static final class ExternalMod {
+        final ModFilterConfig.ModDefinition definition;
+        final List<Pattern> patterns;
+
+        ExternalMod(ModFilterConfig.ModDefinition definition) {
+            this.definition = definition;
+            List<Pattern> compiled = new ArrayList<>(definition.getChannels().size());
+            for (String channel : definition.getChannels()) {
+                compiled.add(ModFilterConfig.wildcardToRegex(channel));
+            }
+            this.patterns = List.copyOf(compiled);
+        }
+
+        boolean matches(String channel) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(channel).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean sameAs(ModFilterConfig.ModDefinition other) {
+            return definition.getName().equals(other.getName())
+                    && definition.getDescription().equals(other.getDescription())
+                    && definition.getChannels().equals(other.getChannels());
+        }
+    }
+
+    /**
+     * What an update touched: the affected mod IDs, and the old and new patterns of those mods, so online players
+     * only need to be checked against these.
+     */
+    static final class Change {
+        final Set<String> modIds;
+        final List<Pattern> patterns;
+
+        Change(Set<String> modIds, List<Pattern> patterns) {
+            this.modIds = modIds;
+            this.patterns = patterns;
+        }
+    }
+
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Logger logger;
+    private final Path path;
+    private final boolean directory;
+    private final Consumer<Change> onChange;
+
+    // Swapped as a whole on every change so readers never see a half-applied update
+    private volatile Map<String, ExternalMod> mods = Map.of();
+    // Which mod IDs each file defined last time it was read; only touched under this object's lock
+    private final Map<Path, Set<String>> modsByFile = new HashMap<>();
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    ExternalCatalogue(Logger logger, Path path, Consumer<Change> onChange) {
+        this.logger = logger;
+        this.path = path;
+        this.directory = Files.isDirectory(path);
+        this.onChange = onChange;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    Map<String, ExternalMod> getMods() {
+        return mods;
+    }
+
+    /**
+     * Loads every file now, then watches for changes on a background thread.
+     */
+    void start() {
+        rescan();
+        try {
+            watchService = path.getFileSystem().newWatchService();
+            Path watched = directory ? path : path.toAbsolutePath().getParent();
+            watched.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.warning("Cannot watch external catalogue " + path + ", changes need /md reload: " + e.getMessage());
+            return;
+        }
+        watcher = new Thread(this::watch, "ModDetector-CatalogueWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    /**
+     * Re-reads every catalogue file, still applying only the differences.
+     */
+    synchronized Change rescan() {
+        Set<Path> files = new HashSet<>(modsByFile.keySet());
+        if (directory) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.{yml,yaml}")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            } catch (IOException e) {
+                logger.warning("Failed to list external catalogue " + path + ": " + e.getMessage());
+            }
+        } else {
+            files.add(path);
+        }
+        return apply(files);
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Set<Path> touched = new HashSet<>();
+                boolean overflow = collect(key, touched);
+                // Editors often write a file in several steps; let them finish and fold the events together
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, touched);
+                }
+                if (overflow || !touched.isEmpty()) {
+                    Change change;
+                    synchronized (this) {
+                        // After an overflow we lost track of individual files; re-read them all
+                        change = overflow ? rescan() : apply(touched);
+                    }
+                    if (!change.modIds.isEmpty()) {
+                        onChange.accept(change);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed on disable or when the path changes
+        }
+    }
+
+    /**
+     * Adds the catalogue files an event batch touched.
+     *
+     * @return true if events were dropped and the whole catalogue must be re-read
+     */
+    private boolean collect(WatchKey key, Set<Path> touched) {
+        Path dir = (Path) key.watchable();
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (directory ? isCatalogueFile(file) : file.getFileName().equals(path.getFileName())) {
+                touched.add(directory ? file : path);
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    private static boolean isCatalogueFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".yml") || name.endsWith(".yaml");
+    }
+
+    /**
+     * Re-reads the given files and swaps in only the mods whose definition changed.
+     */
+    private Change apply(Set<Path> files) {
+        Map<String, ExternalMod> next = null;
+        Set<String> changedIds = new HashSet<>();
+        List<Pattern> affectedPatterns = new ArrayList<>();
+
+        for (Path file : files) {
+            Map<String, ModFilterConfig.ModDefinition> defined = Files.isRegularFile(file) ? parse(file) : Map.of();
+            if (defined == null) {
+                // Unreadable, most likely mid-edit; keep what it defined until it parses again
+                continue;
+            }
+            Set<String> previous = modsByFile.getOrDefault(file, Set.of());
+            if (defined.isEmpty()) {
+                modsByFile.remove(file);
+            } else {
+                modsByFile.put(file, Set.copyOf(defined.keySet()));
+            }
+
+            for (ModFilterConfig.ModDefinition definition : defined.values()) {
+                String id = definition.getId().toLowerCase(Locale.ROOT);
+                ExternalMod existing = (next != null ? next : mods).get(id);
+                if (existing != null && existing.sameAs(definition)) {
+                    continue;
+                }
+                if (next == null) next = new HashMap<>(mods);
+                ExternalMod compiled = new ExternalMod(definition);
+                next.put(id, compiled);
+                changedIds.add(id);
+                affectedPatterns.addAll(compiled.patterns);
+                if (existing != null) affectedPatterns.addAll(existing.patterns);
+            }
+            for (String id : previous) {
+                if (defined.containsKey(id)) continue;
+                // Still defined in another file: fall back to that definition instead of dropping the mod
+                ModFilterConfig.ModDefinition fallback = definitionElsewhere(id);
+                ExternalMod removed = (next != null ? next : mods).get(id);
+                if (fallback != null && removed != null && removed.sameAs(fallback)) continue;
+                if (next == null) next = new HashMap<>(mods);
+                if (fallback != null) {
+                    ExternalMod compiled = new ExternalMod(fallback);
+                    next.put(id, compiled);
+                    changedIds.add(id);
+                    affectedPatterns.addAll(compiled.patterns);
+                } else {
+                    next.remove(id);
+                }
+                if (removed != null) {
+                    changedIds.add(id);
+                    affectedPatterns.addAll(removed.patterns);
+                }
+            }
+        }
+
+        if (next != null) {
+            mods = Map.copyOf(next);
+            logger.info("External catalogue: " + changedIds.size() + " mod(s) updated, " + mods.size() + " loaded");
+        }
+        return new Change(changedIds, affectedPatterns);
+    }
+
+    /**
+     * The definition of a mod in whichever other catalogue file still defines it, or null if none does.
+     */
+    private ModFilterConfig.ModDefinition definitionElsewhere(String id) {
+        for (Map.Entry<Path, Set<String>> entry : modsByFile.entrySet()) {
+            if (!entry.getValue().contains(id)) continue;
+            Map<String, ModFilterConfig.ModDefinition> defined = parse(entry.getKey());
+            if (defined != null && defined.containsKey(id)) {
+                return defined.get(id);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the mods defined in one file, keyed by lowercase ID.
+     *
+     * @return the definitions, or null if the file could not be read or parsed
+     */
+    private Map<String, ModFilterConfig.ModDefinition> parse(Path file) {
+        Map<String, ModFilterConfig.ModDefinition> defined = new LinkedHashMap<>();
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            // loadConfiguration would hand back an empty config on a syntax error, wiping the file's mods
+            yaml.load(file.toFile());
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.warning("Failed to read external catalogue file " + file + ", keeping its previous mods: "
+                    + e.getMessage());
+            return null;
+        }
+
+        ConfigurationSection modsSection = yaml.getConfigurationSection("mods");
+        if (modsSection != null) {
+            for (String modId : modsSection.getKeys(false)) {
+                ConfigurationSection modSection = modsSection.getConfigurationSection(modId);
+                if (modSection != null) {
+                    addDefinition(defined, file, modId, modSection);
+                }
+            }
+        } else if (yaml.contains("channels")) {
+            String fileName = file.getFileName().toString();
+            addDefinition(defined, file, fileName.substring(0, fileName.lastIndexOf('.')), yaml);
+        }
+        return defined;
+    }
+
+    private void addDefinition(Map<String, ModFilterConfig.ModDefinition> defined, Path file, String modId,
+                               ConfigurationSection section) {
+        List<String> channels = section.getStringList("channels");
+        if (channels.isEmpty()) {
+            logger.warning("External mod '" + modId + "' in " + file.getFileName() + " has no channels, skipping");
+            return;
+        }
+        String id = modId.toLowerCase(Locale.ROOT);
+        for (Map.Entry<Path, Set<String>> entry : modsByFile.entrySet()) {
+            if (!entry.getKey().equals(file) && entry.getValue().contains(id)) {
+                logger.warning("External mod '" + modId + "' is defined in both " + entry.getKey().getFileName()
+                        + " and " + file.getFileName() + "; using " + file.getFileName());
+            }
+        }
+        defined.put(id, new ModFilterConfig.ModDefinition(modId,
+                Objects.requireNonNullElse(section.getString("name"), modId),
+                Objects.requireNonNullElse(section.getString("description"), ""),
+                List.copyOf(channels)));
+    }
+}
@@ -0,0 +1,101 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Estimates the number of distinct values added, in a fixed 512 bytes regardless of how many there were (about 4.6%
+ * standard error). Sketches over the same kind of value merge by taking the larger register, so per-day sketches
+ * combine into any window without double counting a player seen on several days.
+ */
+final class HyperLogLog {
+
+    static final int PRECISION = 9;
+    static final int REGISTERS = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    /**
+     * Wraps registers read back from disk.
+     */
+    HyperLogLog(byte[] registers) {
+        if (registers.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected " + REGISTERS + " registers, got " + registers.length);
+        }
+        this.registers = registers;
+    }
+
+    void add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // The guard bit caps the rank when the remaining bits are all zero
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Small cardinalities: linear counting over the empty registers is far more accurate
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    byte[] registers() {
+        return registers;
+    }
+
+    HyperLogLog copy() {
+        return new HyperLogLog(registers.clone());
+    }
+
+    /**
+     * Spreads a UUID over all 64 bits (the murmur3 finalizer), since random UUIDs still have fixed version bits.
+     */
+    static long hash(UUID uuid) {
+        return mix(uuid.getMostSignificantBits() * 31 + uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, spread with the same finalizer.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
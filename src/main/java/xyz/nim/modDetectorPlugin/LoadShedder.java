@@ -0,0 +1,177 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Watches the join, registration and quit rate and sheds non-essential work during join storms.
+ *
+ * <p>When a restart sends hundreds of clients back at once, every blocked channel would otherwise produce a console
+ * warning, an admin notification and a history write within the same few seconds. Above
+ * {@code load-shedding.enter-events-per-second} the shedder switches to degraded mode: blocking and kicks still happen
+ * immediately, but that other work is queued in a backlog. Once the rate has stayed below
+ * {@code exit-events-per-second} for {@code calm-seconds}, normal mode resumes and the backlog is drained a few tasks
+ * per tick, each handed back to its player's pipeline lane so the tick itself stays cheap. The gap between the two
+ * thresholds and the calm period keep the mode from flapping.
+ */
+final class LoadShedder {
+
+    private static final int TICKS_PER_SECOND = 20;
+
+    private final ModFilterConfig config;
+    private final Logger logger;
+    private final EventPipeline pipeline;
+
+    private final AtomicLong events = new AtomicLong();
+    private final Queue<Deferred> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlogSize = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    // Only written from the tick task
+    private volatile boolean shedding;
+    private volatile int lastRate;
+    private volatile long sheddingSinceMillis;
+    private long lastEvents;
+    private int calmSeconds;
+    private int ticks;
+
+    LoadShedder(ModFilterConfig config, Logger logger, EventPipeline pipeline) {
+        this.config = config;
+        this.logger = logger;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Counts one player event towards the rate. Called from event handlers, so it only bumps a counter.
+     */
+    void recordEvent() {
+        events.incrementAndGet();
+    }
+
+    /**
+     * Runs the task now, or queues it for later while shedding. Deferred tasks run on the player's pipeline lane.
+     */
+    void runOrDefer(UUID uuid, Runnable task) {
+        if (!shedding) {
+            task.run();
+            return;
+        }
+        // Reserve the slot first so concurrent lanes cannot overshoot the cap
+        if (backlogSize.incrementAndGet() > config.getLoadSheddingMaxBacklog()) {
+            backlogSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        backlog.add(new Deferred(uuid, task));
+        deferred.incrementAndGet();
+    }
+
+    /**
+     * Runs every tick on the global thread: samples the rate once a second and drains the backlog when calm.
+     */
+    void tick() {
+        if (++ticks >= TICKS_PER_SECOND) {
+            ticks = 0;
+            sample();
+        }
+        if (!shedding) {
+            drain(config.getLoadSheddingDrainPerTick());
+        }
+    }
+
+    private void sample() {
+        long total = events.get();
+        int rate = (int) Math.min(Integer.MAX_VALUE, total - lastEvents);
+        lastEvents = total;
+        lastRate = rate;
+
+        if (!shedding) {
+            if (config.isLoadSheddingEnabled() && rate >= config.getLoadSheddingEnterRate()) {
+                shedding = true;
+                sheddingSinceMillis = System.currentTimeMillis();
+                calmSeconds = 0;
+                deferred.set(0);
+                dropped.set(0);
+                logger.warning("Entering load-shedding mode at " + rate + " events/s; notifications and channel logging"
+                        + " are deferred, blocking continues");
+            }
+            return;
+        }
+
+        // Disabling it on reload ends an episode straight away
+        boolean calm = !config.isLoadSheddingEnabled() || rate < config.getLoadSheddingExitRate();
+        calmSeconds = calm ? calmSeconds + 1 : 0;
+        if (!config.isLoadSheddingEnabled() || calmSeconds >= config.getLoadSheddingCalmSeconds()) {
+            shedding = false;
+            long seconds = (System.currentTimeMillis() - sheddingSinceMillis) / 1000;
+            long lost = dropped.get();
+            logger.info("Leaving load-shedding mode after " + seconds + "s; draining " + backlogSize.get()
+                    + " deferred task(s)" + (lost > 0 ? ", " + lost + " dropped when the backlog was full" : ""));
+        }
+    }
+
+    private void drain(int limit) {
+        for (int i = 0; i < limit; i++) {
+            Deferred next = backlog.poll();
+            if (next == null) {
+                return;
+            }
+            backlogSize.decrementAndGet();
+            pipeline.submit(next.uuid(), next.task());
+        }
+    }
+
+    /**
+     * Runs whatever is still queued on the calling thread; called on disable, after the pipeline has shut down, so
+     * deferred history writes reach the final flush.
+     */
+    void drainAll() {
+        Deferred next;
+        while ((next = backlog.poll()) != null) {
+            backlogSize.decrementAndGet();
+            try {
+                next.task().run();
+            } catch (RuntimeException e) {
+                logger.warning("Deferred task failed: " + e);
+            }
+        }
+    }
+
+    boolean isShedding() {
+        return shedding;
+    }
+
+    /**
+     * Player events counted during the last full second.
+     */
+    int getRate() {
+        return lastRate;
+    }
+
+    long getSheddingSinceMillis() {
+        return sheddingSinceMillis;
+    }
+
+    int getBacklogSize() {
+        return backlogSize.get();
+    }
+
+    /**
+     * Tasks deferred since the current or most recent episode began.
+     */
+    long getDeferred() {
+        return deferred.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private record Deferred(UUID uuid, Runnable task) {
+    }
+}
@@ -0,0 +1,107 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.logging.Logger;
+
+/**
+ * Keeps the plugin's estimated heap use under {@code memory.budget-mb}.
+ *
+ * <p>Every {@code memory.check-interval-seconds} it builds a {@link MemoryReport}. Over budget, it frees memory in a
+ * fixed order, cheapest and least disruptive first, and stops as soon as the estimate is back under budget:
+ * <ol>
+ *     <li>shrink caches: rule verdict caches and the channel name interner, rebuilt on demand;</li>
+ *     <li>compact session lists: trim list capacity and share equal channel strings, which loses nothing;</li>
+ *     <li>in shared storage, evict other nodes' records, least recently seen first; they are read back from the
+ *     node's file when needed;</li>
+ *     <li>evict cold history records: offline players' records, least recently seen first, are dropped from memory
+ *     and read back from the data file when next needed.</li>
+ * </ol>
+ * Eviction continues until the estimate is {@link #TARGET_RATIO} of the budget, so the next check does not start
+ * over. What is left past that (online players, records not yet written, the indexes) cannot be evicted, and a warning
+ * says so.
+ */
+final class MemoryGovernor {
+
+    static final double TARGET_RATIO = 0.9;
+
+    private final ModFilterConfig config;
+    private final DetectionLogger detectionLogger;
+    private final ModMessageListener messageListener;
+    private final Logger logger;
+
+    private volatile String lastAction = "none";
+    private boolean overBudgetWarned;
+
+    MemoryGovernor(ModFilterConfig config, DetectionLogger detectionLogger, ModMessageListener messageListener,
+                   Logger logger) {
+        this.config = config;
+        this.detectionLogger = detectionLogger;
+        this.messageListener = messageListener;
+        this.logger = logger;
+    }
+
+    MemoryReport report() {
+        MemoryReport report = new MemoryReport();
+        detectionLogger.reportMemory(report);
+        messageListener.reportMemory(report);
+        config.reportMemory(report);
+        return report;
+    }
+
+    /**
+     * Runs on an async timer; only acts when a budget is set and exceeded.
+     */
+    synchronized void check() {
+        long budget = config.getMemoryBudgetBytes();
+        if (budget <= 0 || !detectionLogger.isLoaded()) {
+            return;
+        }
+        long before = report().total();
+        if (before <= budget) {
+            overBudgetWarned = false;
+            return;
+        }
+
+        config.shrinkCaches();
+        messageListener.shrinkCaches();
+        long estimate = report().total();
+        String action = "shrank caches";
+
+        if (estimate > budget) {
+            detectionLogger.compactSessions();
+            estimate = report().total();
+            action = "compacted sessions";
+        }
+
+        long target = (long) (budget * TARGET_RATIO);
+        int evicted = 0;
+        if (estimate > budget) {
+            evicted += detectionLogger.evictRemoteRecords(estimate - target, messageListener.getOnlinePlayerIds());
+            estimate = report().total();
+            action = "evicted " + evicted + " cold record(s)";
+        }
+
+        if (estimate > budget) {
+            evicted += detectionLogger.evictColdRecords(estimate - target, messageListener.getOnlinePlayerIds());
+            estimate = report().total();
+            action = "evicted " + evicted + " cold record(s)";
+        }
+
+        lastAction = action + " (" + formatBytes(before) + " -> " + formatBytes(estimate) + ")";
+        logger.info("Memory over budget (" + formatBytes(budget) + "): " + lastAction);
+        if (estimate > budget && !overBudgetWarned) {
+            overBudgetWarned = true;
+            logger.warning("Memory estimate is still over memory.budget-mb after freeing what it can; see /md memory");
+        }
+    }
+
+    String getLastAction() {
+        return lastAction;
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,93 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Estimated retained heap per plugin structure, for {@code /md memory} and the memory governor.
+ *
+ * <p>Sizes are counted from entry counts and string lengths using typical 64-bit layouts with compressed references,
+ * not measured, and strings are counted once per place that holds them even when instances are shared. Expect the
+ * figures to be within a small factor of a heap dump, and to move in the right direction.
+ */
+final class MemoryReport {
+
+    static final class Line {
+        final String structure;
+        final long entries;
+        final long bytes;
+
+        Line(String structure, long entries, long bytes) {
+            this.structure = structure;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+    }
+
+    static final long OBJECT = 16;
+    static final long REFERENCE = 4;
+    static final long UUID = 32;
+    static final long INSTANT = 24;
+    static final long BOXED_LONG = 16;
+    // Node plus its share of the table, for HashMap, HashSet and ConcurrentHashMap
+    private static final long HASH_ENTRY = 40;
+    // LinkedHashMap entries carry two extra links
+    private static final long LINKED_HASH_ENTRY = 48;
+    private static final long HASH_MAP = 64;
+
+    private final List<Line> lines = new ArrayList<>();
+
+    void add(String structure, long entries, long bytes) {
+        lines.add(new Line(structure, entries, bytes));
+    }
+
+    /**
+     * Largest first.
+     */
+    List<Line> lines() {
+        List<Line> sorted = new ArrayList<>(lines);
+        sorted.sort(Comparator.comparingLong((Line line) -> line.bytes).reversed());
+        return sorted;
+    }
+
+    long total() {
+        long total = 0;
+        for (Line line : lines) {
+            total += line.bytes;
+        }
+        return total;
+    }
+
+    /**
+     * A compact (Latin-1) string: the String object plus its byte array.
+     */
+    static long string(String value) {
+        return value == null ? 0 : 24 + align(16 + value.length());
+    }
+
+    static long strings(Collection<String> values) {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += string(value);
+        }
+        return bytes;
+    }
+
+    static long hashEntries(long entries) {
+        return HASH_MAP + entries * HASH_ENTRY;
+    }
+
+    static long linkedHashEntries(long entries) {
+        return HASH_MAP + entries * LINKED_HASH_ENTRY;
+    }
+
+    static long arrayList(long capacity) {
+        return 24 + align(16 + capacity * REFERENCE);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
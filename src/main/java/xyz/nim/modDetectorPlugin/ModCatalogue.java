@@ -0,0 +1,191 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The built-in mod catalogue, loaded from {@code mods.idx} which the build compiles from {@code mods.yml} (see
+ * {@code gradle/mod-catalogue.gradle} for the layout).
+ *
+ * <p>Exact and {@code prefix*} channel patterns live in a lowercase trie stored as flat arrays, so resolving a
+ * channel is one walk over its characters. The rare patterns with other wildcards share one {@link WildcardMatcher}.
+ * Where an umbrella pattern overlaps a more specific one, the most specific match wins name resolution.
+ */
+final class ModCatalogue {
+
+    static final String RESOURCE = "mods.idx";
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+
+    private final List<ModFilterConfig.ModDefinition> mods;
+    private final Map<String, Integer> modIndex = new HashMap<>();
+
+    // Trie node i: terminal mods, then edges [firstEdge[i], firstEdge[i + 1]) sorted by character
+    private final int[] exactMod;
+    private final int[] prefixMod;
+    private final int[] firstEdge;
+    private final char[] edgeChar;
+    private final int[] edgeChild;
+
+    private final WildcardMatcher wildcardPatterns;
+    private final int[] wildcardMod;
+
+    private ModCatalogue(List<ModFilterConfig.ModDefinition> mods, int[] exactMod, int[] prefixMod, int[] firstEdge,
+                         char[] edgeChar, int[] edgeChild, WildcardMatcher wildcardPatterns, int[] wildcardMod) {
+        this.mods = mods;
+        this.exactMod = exactMod;
+        this.prefixMod = prefixMod;
+        this.firstEdge = firstEdge;
+        this.edgeChar = edgeChar;
+        this.edgeChild = edgeChild;
+        this.wildcardPatterns = wildcardPatterns;
+        this.wildcardMod = wildcardMod;
+        for (int i = 0; i < mods.size(); i++) {
+            modIndex.put(mods.get(i).getId().toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    static ModCatalogue read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        byte[] magic = new byte[5];
+        in.readFully(magic);
+        int version = in.readUnsignedByte();
+        if (!"MDIDX".equals(new String(magic, StandardCharsets.US_ASCII)) || version != VERSION) {
+            throw new IOException("Not a version " + VERSION + " mod catalogue");
+        }
+
+        int modCount = in.readInt();
+        List<ModFilterConfig.ModDefinition> mods = new ArrayList<>(modCount);
+        for (int i = 0; i < modCount; i++) {
+            String id = in.readUTF();
+            String name = in.readUTF();
+            String description = in.readUTF();
+            int channelCount = in.readInt();
+            List<String> channels = new ArrayList<>(channelCount);
+            for (int c = 0; c < channelCount; c++) {
+                channels.add(in.readUTF());
+            }
+            mods.add(new ModFilterConfig.ModDefinition(id, name, description, List.copyOf(channels)));
+        }
+
+        int nodeCount = in.readInt();
+        int[] exactMod = new int[nodeCount];
+        int[] prefixMod = new int[nodeCount];
+        int[] firstEdge = new int[nodeCount + 1];
+        char[] edgeChar = new char[Math.max(0, nodeCount - 1)];
+        int[] edgeChild = new int[edgeChar.length];
+        int edge = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            exactMod[node] = in.readInt();
+            prefixMod[node] = in.readInt();
+            int edgeCount = in.readInt();
+            firstEdge[node] = edge;
+            for (int e = 0; e < edgeCount; e++, edge++) {
+                edgeChar[edge] = in.readChar();
+                edgeChild[edge] = in.readInt();
+            }
+        }
+        firstEdge[nodeCount] = edge;
+
+        int wildcardCount = in.readInt();
+        List<String> wildcards = new ArrayList<>(wildcardCount);
+        int[] wildcardMod = new int[wildcardCount];
+        for (int i = 0; i < wildcardCount; i++) {
+            wildcards.add(in.readUTF());
+            wildcardMod[i] = in.readInt();
+        }
+
+        return new ModCatalogue(List.copyOf(mods), exactMod, prefixMod, firstEdge, edgeChar, edgeChild,
+                WildcardMatcher.compile(wildcards), wildcardMod);
+    }
+
+    List<ModFilterConfig.ModDefinition> getMods() {
+        return mods;
+    }
+
+    /**
+     * Position of a mod in {@link #getMods()}, or -1 if the ID is not in the catalogue.
+     */
+    int indexOf(String modId) {
+        return modIndex.getOrDefault(modId.toLowerCase(Locale.ROOT), NONE);
+    }
+
+    /**
+     * The most specific mod whose pattern matches the channel, or null.
+     *
+     * @param skippedIds lowercase IDs of mods to pass over, e.g. those redefined elsewhere; the next best match wins
+     */
+    ModFilterConfig.ModDefinition lookup(String channel, Set<String> skippedIds) {
+        int node = 0;
+        int best = usable(prefixMod[0], skippedIds);
+        for (int i = 0; i < channel.length(); i++) {
+            node = child(node, Character.toLowerCase(channel.charAt(i)));
+            if (node == NONE) {
+                break;
+            }
+            if (usable(prefixMod[node], skippedIds) != NONE) {
+                best = prefixMod[node];
+            }
+            if (i == channel.length() - 1 && usable(exactMod[node], skippedIds) != NONE) {
+                best = exactMod[node];
+            }
+        }
+        if (best == NONE) {
+            int wildcard = wildcardPatterns.firstMatch(channel,
+                    w -> usable(wildcardMod[w], skippedIds) != NONE);
+            if (wildcard >= 0) {
+                best = wildcardMod[wildcard];
+            }
+        }
+        return best != NONE ? mods.get(best) : null;
+    }
+
+    /**
+     * Whether any pattern of a mod selected in {@code modMask} (indexed like {@link #getMods()}) matches the channel.
+     */
+    boolean matchesAny(String channel, boolean[] modMask) {
+        int node = 0;
+        if (isSelected(prefixMod[0], modMask)) {
+            return true;
+        }
+        for (int i = 0; i < channel.length(); i++) {
+            node = child(node, Character.toLowerCase(channel.charAt(i)));
+            if (node == NONE) {
+                break;
+            }
+            if (isSelected(prefixMod[node], modMask)
+                    || (i == channel.length() - 1 && isSelected(exactMod[node], modMask))) {
+                return true;
+            }
+        }
+        return wildcardPatterns.firstMatch(channel, i -> modMask[wildcardMod[i]]) >= 0;
+    }
+
+    private int usable(int mod, Set<String> skippedIds) {
+        if (mod == NONE || skippedIds.isEmpty()) {
+            return mod;
+        }
+        return skippedIds.contains(mods.get(mod).getId().toLowerCase(Locale.ROOT)) ? NONE : mod;
+    }
+
+    private static boolean isSelected(int mod, boolean[] modMask) {
+        return mod != NONE && modMask[mod];
+    }
+
+    private int child(int node, char c) {
+        int from = firstEdge[node];
+        int to = firstEdge[node + 1];
+        int found = Arrays.binarySearch(edgeChar, from, to, c);
+        return found >= 0 ? edgeChild[found] : NONE;
+    }
+}
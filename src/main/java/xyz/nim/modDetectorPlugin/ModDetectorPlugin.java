@@ -1,9 +1,9 @@
 package xyz.nim.modDetectorPlugin;
 
 import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import io.papermc.paper.command.brigadier.Commands;
-import io.papermc.paper.command.brigadier.argument.ArgumentTypes;
 import io.papermc.paper.plugin.lifecycle.event.LifecycleEventManager;
 import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
 import net.kyori.adventure.text.Component;
@@ -11,30 +11,50 @@ import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 @SuppressWarnings("UnstableApiUsage")
 public final class ModDetectorPlugin extends JavaPlugin {
 
+    private static final int INFO_SUGGESTION_LIMIT = 50;
+    private static final int STATS_TOP_LIMIT = 10;
+
+    private Scheduling scheduling;
     private ModFilterConfig modFilterConfig;
     private ModMessageListener messageListener;
     private DetectionLogger detectionLogger;
+    private DetectionExporter detectionExporter;
+    private MemoryGovernor memoryGovernor;
+    private final AtomicBoolean exportRunning = new AtomicBoolean(false);
 
     @Override
     public void onEnable() {
+        scheduling = new Scheduling(this);
         modFilterConfig = new ModFilterConfig(this);
         modFilterConfig.load();
 
         detectionLogger = new DetectionLogger(this);
+        detectionExporter = new DetectionExporter(detectionLogger, new File(getDataFolder(), "exports"));
         messageListener = new ModMessageListener(this, modFilterConfig, detectionLogger);
 
         getServer().getPluginManager().registerEvents(messageListener, this);
 
+        memoryGovernor = new MemoryGovernor(modFilterConfig, detectionLogger, messageListener, getLogger());
+        long memoryCheckTicks = modFilterConfig.getMemoryCheckIntervalSeconds() * 20L;
+        scheduling.runAsyncTimer(memoryGovernor::check, memoryCheckTicks, memoryCheckTicks);
+
         registerPluginChannels();
 
         registerCommands();
@@ -52,9 +72,19 @@ public final class ModDetectorPlugin extends JavaPlugin {
                             .requires(source -> source.getSender().hasPermission("moddetector.admin"))
                             .then(Commands.literal("reload")
                                     .executes(ctx -> {
+                                        var sender = ctx.getSource().getSender();
                                         modFilterConfig.load();
-                                        ctx.getSource().getSender().sendMessage(
+                                        sender.sendMessage(
                                                 Component.text("[ModDetector] Configuration reloaded.", NamedTextColor.GREEN));
+                                        // The re-check snapshots every online player, which on Folia only the global region may do
+                                        scheduling.executeGlobal(() -> {
+                                            int players = messageListener.recheckAll(summary -> sender.sendMessage(
+                                                    Component.text("[ModDetector] Re-check done: " + summary, NamedTextColor.GRAY)));
+                                            if (players > 0) {
+                                                sender.sendMessage(Component.text("[ModDetector] Re-checking " + players
+                                                        + " online player(s) against the new rules...", NamedTextColor.GRAY));
+                                            }
+                                        });
                                         return Command.SINGLE_SUCCESS;
                                     }))
                             .then(Commands.literal("status")
@@ -63,6 +93,10 @@ public final class ModDetectorPlugin extends JavaPlugin {
                                         sender.sendMessage(Component.text("=== ModDetector Status ===", NamedTextColor.GOLD));
                                         sender.sendMessage(Component.text("Mode: ", NamedTextColor.GRAY)
                                                 .append(Component.text(modFilterConfig.getMode().name(), NamedTextColor.YELLOW)));
+                                        if (modFilterConfig.getProfiles().size() > 1) {
+                                            sender.sendMessage(Component.text("Profiles: ", NamedTextColor.GRAY)
+                                                    .append(Component.text(String.join(", ", modFilterConfig.getProfiles().keySet()), NamedTextColor.YELLOW)));
+                                        }
                                         sender.sendMessage(Component.text("Kick: ", NamedTextColor.GRAY)
                                                 .append(Component.text(modFilterConfig.isKick() ? "enabled" : "disabled", NamedTextColor.YELLOW)));
                                         sender.sendMessage(Component.text("Debug: ", NamedTextColor.GRAY)
@@ -73,6 +107,30 @@ public final class ModDetectorPlugin extends JavaPlugin {
                                                 .append(Component.text(modFilterConfig.isNotifyAdmins() ? "enabled" : "disabled", NamedTextColor.YELLOW)));
                                         sender.sendMessage(Component.text("Track Detections: ", NamedTextColor.GRAY)
                                                 .append(Component.text(modFilterConfig.isTrackDetections() ? "enabled" : "disabled", NamedTextColor.YELLOW)));
+                                        int pipelineThreads = messageListener.getPipelineThreads();
+                                        sender.sendMessage(Component.text("Event Pipeline: ", NamedTextColor.GRAY)
+                                                .append(Component.text(pipelineThreads > 0
+                                                        ? pipelineThreads + " thread(s), " + messageListener.getPipelineQueued() + " queued"
+                                                        : "main thread", NamedTextColor.YELLOW)));
+                                        LoadShedder shedder = messageListener.getLoadShedder();
+                                        String load;
+                                        if (shedder.isShedding()) {
+                                            long seconds = (System.currentTimeMillis() - shedder.getSheddingSinceMillis()) / 1000;
+                                            load = "shedding for " + formatDuration(seconds) + " (" + shedder.getRate() + " events/s, "
+                                                    + shedder.getDeferred() + " deferred, " + shedder.getDropped() + " dropped)";
+                                        } else {
+                                            load = "normal (" + shedder.getRate() + " events/s"
+                                                    + (shedder.getBacklogSize() > 0 ? ", draining " + shedder.getBacklogSize() + " deferred" : "") + ")";
+                                        }
+                                        sender.sendMessage(Component.text("Load: ", NamedTextColor.GRAY)
+                                                .append(Component.text(load, shedder.isShedding() ? NamedTextColor.RED : NamedTextColor.YELLOW)));
+                                        DetectionLogger.CommitStats commits = detectionLogger.getCommitStats();
+                                        sender.sendMessage(Component.text("Durability: ", NamedTextColor.GRAY)
+                                                .append(Component.text(modFilterConfig.getDurability().name().toLowerCase().replace('_', '-')
+                                                        + " (" + commits.getCommits() + " commits, "
+                                                        + String.format("%.1f records/commit, %.2f ms avg, %.2f ms max",
+                                                        commits.getAverageBatch(), commits.getAverageMillis(), commits.getMaxMillis())
+                                                        + ")", NamedTextColor.YELLOW)));
                                         return Command.SINGLE_SUCCESS;
                                     }))
                             .then(Commands.literal("debug")
@@ -92,6 +150,15 @@ public final class ModDetectorPlugin extends JavaPlugin {
                                                     .append(Component.text(" - " + mod.getName(), NamedTextColor.WHITE))
                                                     .append(Component.text(" (" + mod.getDescription() + ")", NamedTextColor.GRAY)));
                                         });
+                                        var externalMods = modFilterConfig.getExternalMods();
+                                        if (!externalMods.isEmpty()) {
+                                            sender.sendMessage(Component.text("=== External Mods ===", NamedTextColor.GOLD));
+                                            externalMods.values().forEach(mod -> {
+                                                sender.sendMessage(Component.text("  " + mod.getId(), NamedTextColor.LIGHT_PURPLE)
+                                                        .append(Component.text(" - " + mod.getName(), NamedTextColor.WHITE))
+                                                        .append(Component.text(" (" + mod.getDescription() + ")", NamedTextColor.GRAY)));
+                                            });
+                                        }
                                         var customMods = modFilterConfig.getCustomMods();
                                         if (!customMods.isEmpty()) {
                                             sender.sendMessage(Component.text("=== Custom Mods ===", NamedTextColor.GOLD));
@@ -135,81 +202,87 @@ public final class ModDetectorPlugin extends JavaPlugin {
                                         return Command.SINGLE_SUCCESS;
                                     }))
                             .then(Commands.literal("info")
-                                    .then(Commands.argument("player", ArgumentTypes.player())
+                                    .then(Commands.argument("player", StringArgumentType.word())
+                                            .suggests((ctx, builder) -> {
+                                                String prefix = builder.getRemainingLowerCase();
+                                                Set<String> names = new LinkedHashSet<>();
+                                                for (Player online : getServer().getOnlinePlayers()) {
+                                                    if (online.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                                                        names.add(online.getName());
+                                                    }
+                                                }
+                                                // Offline players from history, current and previous names
+                                                names.addAll(detectionLogger.completeUsernames(prefix, INFO_SUGGESTION_LIMIT));
+                                                names.stream().limit(INFO_SUGGESTION_LIMIT).forEach(builder::suggest);
+                                                return builder.buildFuture();
+                                            })
+                                            .executes(ctx -> {
+                                                var sender = ctx.getSource().getSender();
+                                                String input = StringArgumentType.getString(ctx, "player");
+
+                                                // Online players by exact name first, then history by UUID or any name they have used
+                                                Player online = Bukkit.getPlayerExact(input);
+                                                // History may still be loading or need reading back from disk, so look it up off the main thread
+                                                scheduling.runAsync(() -> {
+                                                    UUID uuid = online != null ? online.getUniqueId() : detectionLogger.resolvePlayer(input);
+                                                    var historicalData = uuid != null ? detectionLogger.getPlayerData(uuid) : null;
+                                                    scheduling.runFor(sender, () -> sendPlayerInfo(sender, input, online, uuid, historicalData));
+                                                });
+                                                return Command.SINGLE_SUCCESS;
+                                            })))
+                            .then(Commands.literal("search")
+                                    .then(Commands.argument("query", StringArgumentType.greedyString())
                                             .executes(ctx -> {
                                                 var sender = ctx.getSource().getSender();
-                                                var playerSelector = ctx.getArgument("player", io.papermc.paper.command.brigadier.argument.resolvers.selector.PlayerSelectorArgumentResolver.class);
-                                                Player target;
+                                                String rawQuery = StringArgumentType.getString(ctx, "query");
+                                                SearchQuery query;
                                                 try {
-                                                    target = playerSelector.resolve(ctx.getSource()).getFirst();
-                                                } catch (Exception e) {
-                                                    sender.sendMessage(Component.text("[ModDetector] Player not found or not online.", NamedTextColor.RED));
+                                                    query = SearchQuery.parse(rawQuery, modFilterConfig);
+                                                } catch (IllegalArgumentException e) {
+                                                    sender.sendMessage(Component.text("[ModDetector] " + e.getMessage(), NamedTextColor.RED));
                                                     return Command.SINGLE_SUCCESS;
                                                 }
 
-                                                UUID uuid = target.getUniqueId();
-                                                sender.sendMessage(Component.text("=== Channel Info: " + target.getName() + " ===", NamedTextColor.GOLD));
-
-                                                // Show current session channels
-                                                Set<String> currentChannels = messageListener.getAllRegisteredChannels().get(uuid);
-                                                if (currentChannels != null && !currentChannels.isEmpty()) {
-                                                    sender.sendMessage(Component.text("Current Session (" + currentChannels.size() + " channels):", NamedTextColor.YELLOW));
-                                                    for (String channel : currentChannels) {
-                                                        String modName = modFilterConfig.getModName(channel);
-                                                        boolean isBlocked = modFilterConfig.shouldBlock(channel);
-                                                        NamedTextColor color = isBlocked ? NamedTextColor.RED : NamedTextColor.GREEN;
-                                                        sender.sendMessage(Component.text("  " + channel, color)
-                                                                .append(Component.text(" -> " + modName, NamedTextColor.GRAY)));
-                                                    }
-                                                } else {
-                                                    sender.sendMessage(Component.text("No channels registered this session.", NamedTextColor.GRAY));
-                                                }
-
-                                                // Show historical data if available
-                                                var historicalData = detectionLogger.getPlayerData(uuid);
-                                                if (historicalData != null) {
-                                                    boolean hasMods = historicalData.mods != null && !historicalData.mods.isEmpty();
-                                                    boolean hasChannels = historicalData.channels != null && !historicalData.channels.isEmpty();
-                                                    boolean hasSessions = historicalData.sessions != null && !historicalData.sessions.isEmpty();
-
-                                                    if (hasMods || hasChannels || hasSessions) {
-                                                        sender.sendMessage(Component.text("Historical Data:", NamedTextColor.YELLOW));
-                                                        sender.sendMessage(Component.text("  First seen: " + historicalData.firstSeen, NamedTextColor.GRAY));
-                                                        sender.sendMessage(Component.text("  Total playtime: " + formatDuration(historicalData.totalTimePlayedSeconds), NamedTextColor.GRAY));
-
-                                                        if (hasMods) {
-                                                            sender.sendMessage(Component.text("  All mods ever used (" + historicalData.mods.size() + "):", NamedTextColor.AQUA));
-                                                            for (String mod : historicalData.mods) {
-                                                                sender.sendMessage(Component.text("    " + mod, NamedTextColor.WHITE));
-                                                            }
-                                                        }
-
-                                                        if (hasChannels) {
-                                                            sender.sendMessage(Component.text("  Unknown Channels (" + historicalData.channels.size() + "):", NamedTextColor.GRAY));
-                                                            for (String channel : historicalData.channels) {
-                                                                sender.sendMessage(Component.text("    " + channel, NamedTextColor.DARK_GRAY));
-                                                            }
-                                                        }
-
-                                                        if (hasSessions) {
-                                                            sender.sendMessage(Component.text("  Sessions (" + historicalData.sessionCount + "):", NamedTextColor.YELLOW));
-                                                            for (int i = 0; i < historicalData.sessions.size(); i++) {
-                                                                var session = historicalData.sessions.get(i);
-                                                                String duration = formatDuration(session.durationSeconds);
-                                                                // Reconstruct full mod list for this session
-                                                                var sessionMods = DetectionLogger.getModsForSession(historicalData.sessions, i);
-                                                                String modsStr = !sessionMods.isEmpty()
-                                                                        ? String.join(", ", sessionMods)
-                                                                        : "none";
-                                                                sender.sendMessage(Component.text("    " + session.joinTime + " (" + duration + ")", NamedTextColor.WHITE)
-                                                                        .append(Component.text(" - " + modsStr, NamedTextColor.GRAY)));
-                                                            }
-                                                        }
-                                                    }
-                                                }
-
+                                                // Searching may wait for the history to load; keep it off the main thread
+                                                scheduling.runAsync(() -> {
+                                                    SearchQuery.Result result = detectionLogger.search(query);
+                                                    scheduling.runFor(sender, () -> sendSearchResult(sender, rawQuery, result));
+                                                });
                                                 return Command.SINGLE_SUCCESS;
                                             })))
+                            .then(Commands.literal("export")
+                                    .executes(ctx -> startExport(ctx.getSource().getSender(), DetectionExporter.Format.CSV))
+                                    .then(Commands.argument("format", StringArgumentType.word())
+                                            .suggests((ctx, builder) -> {
+                                                builder.suggest("csv");
+                                                builder.suggest("columnar");
+                                                return builder.buildFuture();
+                                            })
+                                            .executes(ctx -> {
+                                                var format = DetectionExporter.parseFormat(StringArgumentType.getString(ctx, "format"));
+                                                if (format == null) {
+                                                    ctx.getSource().getSender().sendMessage(Component.text("[ModDetector] Unknown format. Use csv or columnar.", NamedTextColor.RED));
+                                                    return Command.SINGLE_SUCCESS;
+                                                }
+                                                return startExport(ctx.getSource().getSender(), format);
+                                            })))
+                            .then(Commands.literal("stats")
+                                    .then(Commands.literal("top")
+                                            .executes(ctx -> sendTopStats(ctx.getSource().getSender(), PopularityStats.Kind.MOD, PopularityStats.DAYS))
+                                            .then(Commands.argument("kind", StringArgumentType.word())
+                                                    .suggests((ctx, builder) -> {
+                                                        builder.suggest("mods");
+                                                        builder.suggest("channels");
+                                                        return builder.buildFuture();
+                                                    })
+                                                    .executes(ctx -> sendTopStats(ctx.getSource().getSender(),
+                                                            StringArgumentType.getString(ctx, "kind"), PopularityStats.DAYS))
+                                                    .then(Commands.argument("days", IntegerArgumentType.integer(1, PopularityStats.DAYS))
+                                                            .executes(ctx -> sendTopStats(ctx.getSource().getSender(),
+                                                                    StringArgumentType.getString(ctx, "kind"),
+                                                                    IntegerArgumentType.getInteger(ctx, "days")))))))
+                            .then(Commands.literal("memory")
+                                    .executes(ctx -> sendMemoryReport(ctx.getSource().getSender())))
                             .then(Commands.literal("discovered")
                                     .executes(ctx -> {
                                         var sender = ctx.getSource().getSender();
@@ -240,7 +313,15 @@ public final class ModDetectorPlugin extends JavaPlugin {
                                 sender.sendMessage(Component.text("/md players", NamedTextColor.YELLOW)
                                         .append(Component.text(" - Show players with registered channels", NamedTextColor.GRAY)));
                                 sender.sendMessage(Component.text("/md info <player>", NamedTextColor.YELLOW)
-                                        .append(Component.text(" - Show all channels for a player", NamedTextColor.GRAY)));
+                                        .append(Component.text(" - Show channels and history for a player (online or offline)", NamedTextColor.GRAY)));
+                                sender.sendMessage(Component.text("/md search <filters>", NamedTextColor.YELLOW)
+                                        .append(Component.text(" - Search history (mod= channel= player= since= until= page=)", NamedTextColor.GRAY)));
+                                sender.sendMessage(Component.text("/md export [csv|columnar]", NamedTextColor.YELLOW)
+                                        .append(Component.text(" - Export all sessions to the exports folder", NamedTextColor.GRAY)));
+                                sender.sendMessage(Component.text("/md stats top [mods|channels] [days]", NamedTextColor.YELLOW)
+                                        .append(Component.text(" - Most used mods or channels by distinct players", NamedTextColor.GRAY)));
+                                sender.sendMessage(Component.text("/md memory", NamedTextColor.YELLOW)
+                                        .append(Component.text(" - Show estimated memory use per structure", NamedTextColor.GRAY)));
                                 sender.sendMessage(Component.text("/md discovered", NamedTextColor.YELLOW)
                                         .append(Component.text(" - List all discovered channels", NamedTextColor.GRAY)));
                                 sender.sendMessage(Component.text("/md debug", NamedTextColor.YELLOW)
@@ -254,6 +335,199 @@ public final class ModDetectorPlugin extends JavaPlugin {
         });
     }
 
+    private int startExport(CommandSender sender, DetectionExporter.Format format) {
+        if (!exportRunning.compareAndSet(false, true)) {
+            sender.sendMessage(Component.text("[ModDetector] An export is already running.", NamedTextColor.YELLOW));
+            return Command.SINGLE_SUCCESS;
+        }
+        sender.sendMessage(Component.text("[ModDetector] Exporting detection history as " + format.name().toLowerCase(Locale.ROOT) + "...", NamedTextColor.GRAY));
+
+        // Stream the history on an async thread and relay progress back to the sender's thread
+        scheduling.runAsync(() -> {
+            try {
+                File file = detectionExporter.export(format, status -> scheduling.runFor(sender, () ->
+                        sender.sendMessage(Component.text("[ModDetector] Export " + status, NamedTextColor.GRAY))));
+                scheduling.runFor(sender, () -> sender.sendMessage(
+                        Component.text("[ModDetector] Export written to " + file.getPath(), NamedTextColor.GREEN)));
+            } catch (Exception e) {
+                getLogger().warning("Failed to export detections: " + e.getMessage());
+                scheduling.runFor(sender, () -> sender.sendMessage(
+                        Component.text("[ModDetector] Export failed: " + e.getMessage(), NamedTextColor.RED)));
+            } finally {
+                exportRunning.set(false);
+            }
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private int sendTopStats(CommandSender sender, String kind, int days) {
+        return switch (kind.toLowerCase(Locale.ROOT)) {
+            case "mods" -> sendTopStats(sender, PopularityStats.Kind.MOD, days);
+            case "channels" -> sendTopStats(sender, PopularityStats.Kind.CHANNEL, days);
+            default -> {
+                sender.sendMessage(Component.text("[ModDetector] Unknown kind. Use mods or channels.", NamedTextColor.RED));
+                yield Command.SINGLE_SUCCESS;
+            }
+        };
+    }
+
+    private int sendTopStats(CommandSender sender, PopularityStats.Kind kind, int days) {
+        PopularityStats stats = detectionLogger.getStats();
+        long today = Math.floorDiv(System.currentTimeMillis() / 1000, 86400);
+        List<PopularityStats.Entry> top = stats.top(kind, days, STATS_TOP_LIMIT, today);
+        String label = kind == PopularityStats.Kind.MOD ? "Mods" : "Unknown Channels";
+        sender.sendMessage(Component.text("=== Top " + label + " (last " + days + " day" + (days == 1 ? "" : "s") + ", ~"
+                + stats.distinctPlayers(days, today) + " players) ===", NamedTextColor.GOLD));
+        if (top.isEmpty()) {
+            sender.sendMessage(Component.text("No sessions recorded in that window yet.", NamedTextColor.GRAY));
+            return Command.SINGLE_SUCCESS;
+        }
+        int rank = 1;
+        for (PopularityStats.Entry entry : top) {
+            sender.sendMessage(Component.text(String.format("  %2d. ", rank++), NamedTextColor.GRAY)
+                    .append(Component.text(entry.name, NamedTextColor.YELLOW))
+                    .append(Component.text(" - ~" + entry.players + " players, ~" + entry.sessions + " sessions", NamedTextColor.GRAY)));
+        }
+        sender.sendMessage(Component.text("Estimates: players within about 5%, sessions may overcount slightly.", NamedTextColor.DARK_GRAY));
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private void sendPlayerInfo(CommandSender sender, String input, Player online, UUID uuid,
+                                DetectionLogger.PlayerChannelData historicalData) {
+        if (uuid == null) {
+            sender.sendMessage(Component.text("[ModDetector] No online player or recorded history for " + input + ".", NamedTextColor.RED));
+            return;
+        }
+
+        String displayName = online != null ? online.getName()
+                : historicalData != null && historicalData.username != null ? historicalData.username
+                : uuid.toString();
+        sender.sendMessage(Component.text("=== Channel Info: " + displayName + " ===", NamedTextColor.GOLD));
+
+        // Show current session channels
+        Set<String> currentChannels = messageListener.getAllRegisteredChannels().get(uuid);
+        if (online != null && currentChannels != null && !currentChannels.isEmpty()) {
+            RuleProfile profile = messageListener.profileOf(online);
+            sender.sendMessage(Component.text("Current Session (" + currentChannels.size() + " channels, profile " + profile.name + "):", NamedTextColor.YELLOW));
+            for (String channel : currentChannels) {
+                String modName = modFilterConfig.getModName(channel);
+                boolean isBlocked = modFilterConfig.shouldBlock(profile, channel);
+                NamedTextColor color = isBlocked ? NamedTextColor.RED : NamedTextColor.GREEN;
+                sender.sendMessage(Component.text("  " + channel, color)
+                        .append(Component.text(" -> " + modName, NamedTextColor.GRAY)));
+            }
+        } else {
+            sender.sendMessage(Component.text("No channels registered this session.", NamedTextColor.GRAY));
+        }
+
+        var fingerprint = messageListener.getFingerprint(uuid);
+        if (online != null && fingerprint != null) {
+            String client = fingerprint.client != null ? fingerprint.client.name : "unknown client";
+            sender.sendMessage(Component.text("Fingerprint: ", NamedTextColor.YELLOW)
+                    .append(Component.text(fingerprint.signatureHex(), NamedTextColor.AQUA)
+                            .clickEvent(ClickEvent.copyToClipboard(fingerprint.signatureHex())))
+                    .append(Component.text(" (" + client + ", brand " + fingerprint.brand + ", "
+                            + fingerprint.mods.size() + " mods)", NamedTextColor.GRAY)));
+        }
+
+        // Show historical data if available
+        if (historicalData != null) {
+            boolean hasMods = historicalData.mods != null && !historicalData.mods.isEmpty();
+            boolean hasChannels = historicalData.channels != null && !historicalData.channels.isEmpty();
+            boolean hasSessions = historicalData.sessions != null && !historicalData.sessions.isEmpty();
+
+            if (hasMods || hasChannels || hasSessions) {
+                sender.sendMessage(Component.text("Historical Data:", NamedTextColor.YELLOW));
+                sender.sendMessage(Component.text("  First seen: " + DetectionLogger.formatTimestamp(historicalData.firstSeen), NamedTextColor.GRAY));
+                if (historicalData.previousNames != null && !historicalData.previousNames.isEmpty()) {
+                    sender.sendMessage(Component.text("  Previous names: " + String.join(", ", historicalData.previousNames), NamedTextColor.GRAY));
+                }
+                sender.sendMessage(Component.text("  Total playtime: " + formatDuration(historicalData.totalTimePlayedSeconds), NamedTextColor.GRAY));
+
+                if (hasMods) {
+                    sender.sendMessage(Component.text("  All mods ever used (" + historicalData.mods.size() + "):", NamedTextColor.AQUA));
+                    for (String mod : historicalData.mods) {
+                        sender.sendMessage(Component.text("    " + mod, NamedTextColor.WHITE));
+                    }
+                }
+
+                if (hasChannels) {
+                    sender.sendMessage(Component.text("  Unknown Channels (" + historicalData.channels.size() + "):", NamedTextColor.GRAY));
+                    for (String channel : historicalData.channels) {
+                        sender.sendMessage(Component.text("    " + channel, NamedTextColor.DARK_GRAY));
+                    }
+                    long omitted = historicalData.getChannelsOmitted();
+                    if (omitted > 0) {
+                        sender.sendMessage(Component.text("    ... and about " + omitted
+                                + " more not stored (channel-limits)", NamedTextColor.DARK_GRAY));
+                    }
+                }
+
+                if (hasSessions) {
+                    sender.sendMessage(Component.text("  Sessions (" + historicalData.sessionCount + "):", NamedTextColor.YELLOW));
+                    for (int i = 0; i < historicalData.sessions.size(); i++) {
+                        var session = historicalData.sessions.get(i);
+                        String duration = formatDuration(session.durationSeconds);
+                        // Reconstruct full mod list for this session
+                        var sessionMods = DetectionLogger.getModsForSession(historicalData.sessions, i);
+                        String modsStr = !sessionMods.isEmpty()
+                                ? String.join(", ", sessionMods)
+                                : "none";
+                        sender.sendMessage(Component.text("    " + DetectionLogger.formatTimestamp(session.joinTime) + " (" + duration + ")", NamedTextColor.WHITE)
+                                .append(Component.text(" - " + modsStr, NamedTextColor.GRAY)));
+                    }
+                }
+            }
+        }
+    }
+
+    private int sendMemoryReport(CommandSender sender) {
+        // Walks every record, so keep it off the main thread
+        scheduling.runAsync(() -> {
+            MemoryReport report = memoryGovernor.report();
+            long budget = modFilterConfig.getMemoryBudgetBytes();
+            scheduling.runFor(sender, () -> {
+                sender.sendMessage(Component.text("=== Estimated Memory Use ===", NamedTextColor.GOLD));
+                for (MemoryReport.Line line : report.lines()) {
+                    sender.sendMessage(Component.text("  " + line.structure, NamedTextColor.YELLOW)
+                            .append(Component.text(" - " + line.entries + " entries, ~"
+                                    + MemoryGovernor.formatBytes(line.bytes), NamedTextColor.GRAY)));
+                }
+                sender.sendMessage(Component.text("Total: ", NamedTextColor.GRAY)
+                        .append(Component.text("~" + MemoryGovernor.formatBytes(report.total()), NamedTextColor.YELLOW))
+                        .append(Component.text(" of " + (budget > 0 ? MemoryGovernor.formatBytes(budget) : "unlimited"), NamedTextColor.GRAY)));
+                sender.sendMessage(Component.text("Last governor action: " + memoryGovernor.getLastAction(), NamedTextColor.DARK_GRAY));
+            });
+        });
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private void sendSearchResult(CommandSender sender, String rawQuery, SearchQuery.Result result) {
+        if (result.totalMatches == 0) {
+            sender.sendMessage(Component.text("[ModDetector] No players match that search.", NamedTextColor.YELLOW));
+            return;
+        }
+        sender.sendMessage(Component.text("=== Search Results (page " + result.page + "/" + result.pageCount + ", "
+                + result.totalMatches + " players, " + result.tookMillis + "ms) ===", NamedTextColor.GOLD));
+        for (SearchQuery.Hit hit : result.hits) {
+            String name = hit.data.username != null ? hit.data.username : hit.data.uuid.toString();
+            String detail = hit.matchingSessions >= 0
+                    ? " (" + hit.matchingSessions + " matching sessions)"
+                    : " (" + hit.data.sessionCount + " sessions)";
+            sender.sendMessage(Component.text("  " + name, NamedTextColor.YELLOW)
+                    .clickEvent(ClickEvent.runCommand("/md info " + name))
+                    .hoverEvent(HoverEvent.showText(Component.text("Click to view details", NamedTextColor.GRAY)))
+                    .append(Component.text(" - last seen " + DetectionLogger.formatTimestamp(hit.data.lastSeen), NamedTextColor.GRAY))
+                    .append(Component.text(detail, NamedTextColor.DARK_GRAY)));
+        }
+        if (result.page < result.pageCount) {
+            // Drop any page= from the original query and ask for the next one
+            String nextQuery = rawQuery.replaceAll("(?i)\\s*page=\\S+", "").trim() + " page=" + (result.page + 1);
+            sender.sendMessage(Component.text("[Next page]", NamedTextColor.AQUA)
+                    .clickEvent(ClickEvent.runCommand("/md search " + nextQuery)));
+        }
+    }
+
     private void registerPluginChannels() {
         String[] commonChannels = {
                 "xaeroworldmap:main",
@@ -281,13 +555,34 @@ public final class ModDetectorPlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * Called from the external catalogue watcher after mods were added, changed or removed.
+     */
+    void onCatalogueChanged(Set<String> modIds, List<Pattern> changedPatterns) {
+        scheduling.runGlobal(() -> {
+            int affected = messageListener.reevaluate(changedPatterns);
+            getLogger().info("Catalogue change (" + String.join(", ", modIds) + ") re-checked " + affected + " online player(s)");
+        });
+    }
+
     @Override
     public void onDisable() {
         getServer().getMessenger().unregisterIncomingPluginChannel(this);
+        modFilterConfig.shutdown();
+        // Drain queued quits first so their sessions are in the final flush
+        messageListener.shutdown();
         detectionLogger.shutdown();
         getLogger().info("ModDetector disabled");
     }
 
+    Scheduling getScheduling() {
+        return scheduling;
+    }
+
+    ModMessageListener getMessageListener() {
+        return messageListener;
+    }
+
     public ModFilterConfig getModFilterConfig() {
         return modFilterConfig;
     }
@@ -2,14 +2,21 @@ package xyz.nim.modDetectorPlugin;
 
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 public class ModFilterConfig {
@@ -19,6 +26,37 @@ public class ModFilterConfig {
         BLACKLIST
     }
 
+    public enum StorageCompression {
+        NONE,
+        GZIP
+    }
+
+    public enum ChannelFloodAction {
+        KICK,
+        IGNORE
+    }
+
+    public enum Durability {
+        PERIODIC,
+        GROUP_COMMIT,
+        RELAXED
+    }
+
+    /**
+     * Every custom mod channel pattern, and the name of the mod each one belongs to, by index.
+     */
+    private static final class CustomModPatterns {
+        static final CustomModPatterns EMPTY = new CustomModPatterns(WildcardMatcher.EMPTY, List.of());
+
+        final WildcardMatcher matcher;
+        final List<String> names;
+
+        CustomModPatterns(WildcardMatcher matcher, List<String> names) {
+            this.matcher = matcher;
+            this.names = List.copyOf(names);
+        }
+    }
+
     public static class ModDefinition {
         private final String id;
         private final String name;
@@ -38,38 +76,73 @@ public class ModFilterConfig {
         public List<String> getChannels() { return channels; }
     }
 
-    private Mode mode;
     private boolean kick;
     private String kickMessageFormat;
     private String logFormat;
-    private List<Pattern> patterns;
     private boolean debug;
     private boolean notifyAdmins;
     private boolean trackDetections;
     private boolean logAllChannels;
+    private StorageCompression storageCompression = StorageCompression.NONE;
+    private Durability durability = Durability.PERIODIC;
+    private int groupCommitWindowMillis = 5;
+    private boolean sessionCheckpointsEnabled = true;
+    private int sessionCheckpointIntervalSeconds = 60;
+    private long memoryBudgetBytes;
+    private int memoryCheckIntervalSeconds = 60;
+    private boolean sharedStorageEnabled;
+    private String sharedStorageDirectory;
+    private String sharedStorageNodeId;
+    private int sharedStoragePollSeconds;
+    private int reloadRecheckPlayersPerTick = 10;
+    private int eventPipelineThreads = 1;
+    private int maxChannelsPerPlayer = 256;
+    private ChannelFloodAction channelFloodAction = ChannelFloodAction.KICK;
+    private int maxStoredChannelsPerPlayer = 64;
+    private int maxDiscoveredChannels = 10000;
+    private boolean loadSheddingEnabled = true;
+    private int loadSheddingEnterRate = 400;
+    private int loadSheddingExitRate = 100;
+    private int loadSheddingCalmSeconds = 5;
+    private int loadSheddingDrainPerTick = 20;
+    private int loadSheddingMaxBacklog = 20000;
+    private boolean fingerprintsEnabled;
+    private int fingerprintSettleTicks = 40;
+    // Replaced (not mutated) on load, so holders of the old table can tell it changed
+    private volatile Map<Long, ClientFingerprinter.KnownClient> knownClients = Map.of();
 
     private final Map<String, ModDefinition> knownMods = new HashMap<>();
     private final Map<String, ModDefinition> customMods = new HashMap<>();
-    private final Map<Pattern, String> patternToModName = new HashMap<>();
-    private final Map<Pattern, String> allModPatterns = new HashMap<>(); // All known mods for name resolution
+    // Custom mods for name resolution; matcher and names are published together so a reader never pairs one
+    // load's matcher with another load's names
+    private volatile CustomModPatterns customModPatterns = CustomModPatterns.EMPTY;
+
+    // Built-in mods, compiled at build time; read once since the jar cannot change under us
+    private ModCatalogue catalogue;
+    // Optional catalogue outside the jar, watched for changes; its mods override built-in ones with the same ID
+    private ExternalCatalogue externalCatalogue;
+    // Rule profiles, swapped as a whole on load so off-thread checks never see a half-built set
+    private volatile RuleProfile defaultProfile = new RuleProfile(RuleProfile.DEFAULT, Mode.BLACKLIST, null, Set.of(),
+            Set.of(), WildcardMatcher.EMPTY);
+    private volatile Map<String, RuleProfile> profiles = Map.of();
+    private volatile Map<String, RuleProfile> worldProfiles = Map.of();
+    private volatile List<RuleProfile> permissionProfiles = List.of();
 
     private final ModDetectorPlugin plugin;
 
     public ModFilterConfig(ModDetectorPlugin plugin) {
         this.plugin = plugin;
-        this.patterns = new ArrayList<>();
     }
 
     public void load() {
+        DetectionEvents.ConfigReload event = new DetectionEvents.ConfigReload();
+        event.begin();
         loadKnownMods();
 
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
         FileConfiguration config = plugin.getConfig();
 
-        String modeStr = config.getString("mode", "blacklist").toUpperCase();
-        this.mode = modeStr.equals("WHITELIST") ? Mode.WHITELIST : Mode.BLACKLIST;
-
         this.kick = config.getBoolean("kick", true);
 
         this.kickMessageFormat = config.getString("kick-message",
@@ -79,56 +152,361 @@ public class ModFilterConfig {
         this.notifyAdmins = config.getBoolean("notify-admins", true);
         this.trackDetections = config.getBoolean("track-detections", true);
         this.logAllChannels = config.getBoolean("log-all-channels", false);
+        this.storageCompression = parseStorageCompression(config.getString("storage-compression", "none"));
+        this.durability = parseDurability(config.getString("durability.mode", "periodic"));
+        this.groupCommitWindowMillis = Math.clamp(config.getInt("durability.group-commit-window-ms", 5), 0, 1000);
+        this.sessionCheckpointsEnabled = config.getBoolean("session-checkpoints.enabled", true);
+        this.sessionCheckpointIntervalSeconds = Math.max(5, config.getInt("session-checkpoints.interval-seconds", 60));
+        this.memoryBudgetBytes = Math.max(0, config.getLong("memory.budget-mb", 0)) * 1024 * 1024;
+        this.memoryCheckIntervalSeconds = Math.max(5, config.getInt("memory.check-interval-seconds", 60));
+        this.sharedStorageEnabled = config.getBoolean("shared-storage.enabled", false);
+        this.sharedStorageDirectory = config.getString("shared-storage.directory", "");
+        this.sharedStorageNodeId = config.getString("shared-storage.node-id", "");
+        this.sharedStoragePollSeconds = config.getInt("shared-storage.poll-interval-seconds", 10);
+        this.reloadRecheckPlayersPerTick = Math.max(1, config.getInt("reload-recheck.players-per-tick", 10));
+        // One lane per four cores keeps up with join storms without competing with the server's own threads
+        int autoThreads = Math.clamp(Runtime.getRuntime().availableProcessors() / 4, 1, 8);
+        String threads = config.getString("event-pipeline.threads", "auto");
+        if ("auto".equalsIgnoreCase(threads)) {
+            this.eventPipelineThreads = autoThreads;
+        } else {
+            try {
+                this.eventPipelineThreads = Math.max(0, Integer.parseInt(threads.trim()));
+            } catch (NumberFormatException e) {
+                plugin.getLogger().warning("Invalid event-pipeline.threads '" + threads + "', using auto");
+                this.eventPipelineThreads = autoThreads;
+            }
+        }
+        if (sharedStorageEnabled && sharedStorageDirectory.isBlank()) {
+            plugin.getLogger().warning("shared-storage is enabled but no directory is set, using local storage");
+            this.sharedStorageEnabled = false;
+        }
+        if (sharedStorageEnabled && storageCompression == StorageCompression.GZIP) {
+            // Other nodes tail the file; appended gzip members cannot be read incrementally
+            plugin.getLogger().warning("storage-compression: gzip is not supported with shared-storage, using none");
+            this.storageCompression = StorageCompression.NONE;
+        }
 
         loadCustomMods(config);
+        loadExternalCatalogue(config);
+        loadFingerprints(config);
+        loadLoadShedding(config);
+        loadChannelLimits(config);
+
+        // Only custom mods need patterns for name resolution; built-in mods resolve through the catalogue
+        List<String> channels = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (ModDefinition mod : customMods.values()) {
+            for (String channel : mod.getChannels()) {
+                channels.add(channel);
+                names.add(mod.getName());
+            }
+        }
+        this.customModPatterns = new CustomModPatterns(WildcardMatcher.compile(channels), names);
 
-        this.patterns.clear();
-        this.patternToModName.clear();
-        this.allModPatterns.clear();
+        loadProfiles(config);
 
-        // Build patterns for ALL known mods (for name resolution)
-        for (ModDefinition mod : knownMods.values()) {
-            for (String channel : mod.getChannels()) {
-                Pattern pattern = wildcardToRegex(channel);
-                allModPatterns.put(pattern, mod.getName());
+        event.end();
+        if (event.shouldCommit()) {
+            int patterns = customModPatterns.matcher.size();
+            for (RuleProfile profile : profiles.values()) {
+                patterns += profile.patterns.size();
             }
+            event.patternsCompiled = patterns;
+            event.profiles = profiles.size();
+            event.commit();
         }
-        for (ModDefinition mod : customMods.values()) {
-            for (String channel : mod.getChannels()) {
-                Pattern pattern = wildcardToRegex(channel);
-                allModPatterns.put(pattern, mod.getName());
+    }
+
+    /**
+     * Compiles the top-level rules into the default profile and each {@code profiles:} entry into its own, then
+     * indexes them by world and permission.
+     */
+    private void loadProfiles(FileConfiguration config) {
+        RuleProfile defaults = compileProfile(RuleProfile.DEFAULT, config, Mode.BLACKLIST);
+        Map<String, RuleProfile> byName = new LinkedHashMap<>();
+        Map<String, RuleProfile> byWorld = new HashMap<>();
+        List<RuleProfile> byPermission = new ArrayList<>();
+        byName.put(defaults.name, defaults);
+
+        ConfigurationSection profilesSection = config.getConfigurationSection("profiles");
+        if (profilesSection != null) {
+            for (String name : profilesSection.getKeys(false)) {
+                ConfigurationSection section = profilesSection.getConfigurationSection(name);
+                if (section == null || name.equalsIgnoreCase(RuleProfile.DEFAULT)) {
+                    plugin.getLogger().warning("Ignoring profile '" + name + "'");
+                    continue;
+                }
+                RuleProfile profile = compileProfile(name, section, defaults.mode);
+                byName.put(name.toLowerCase(), profile);
+                if (profile.isPermissionProfile()) {
+                    byPermission.add(profile);
+                }
+                for (String world : profile.worlds) {
+                    RuleProfile previous = byWorld.put(world, profile);
+                    if (previous != null) {
+                        plugin.getLogger().warning("World '" + world + "' is listed by profiles '" + previous.name
+                                + "' and '" + name + "'; using '" + name + "'");
+                    }
+                }
             }
         }
 
-        List<String> blockedModIds = config.getStringList("blocked-mods");
-        for (String modId : blockedModIds) {
+        this.defaultProfile = defaults;
+        this.profiles = Collections.unmodifiableMap(byName);
+        this.worldProfiles = Map.copyOf(byWorld);
+        this.permissionProfiles = List.copyOf(byPermission);
+        refreshBlockedKnownMods();
+        if (byName.size() > 1) {
+            plugin.getLogger().info("Loaded " + (byName.size() - 1) + " rule profile(s)");
+        }
+    }
+
+    /**
+     * Compiles one profile from a section holding {@code mode}, {@code blocked-mods} and {@code custom-patterns},
+     * plus {@code worlds} and {@code permission} for named profiles.
+     */
+    private RuleProfile compileProfile(String name, ConfigurationSection section, Mode inheritedMode) {
+        String modeStr = section.getString("mode", inheritedMode.name()).toUpperCase();
+        Mode mode = modeStr.equals("WHITELIST") ? Mode.WHITELIST : Mode.BLACKLIST;
+        String prefix = name.equals(RuleProfile.DEFAULT) ? "" : "[" + name + "] ";
+
+        List<String> blockPatterns = new ArrayList<>();
+        Set<String> blockedIds = new HashSet<>();
+        int blockedKnownChannels = 0;
+
+        List<String> blockedModIdList = section.getStringList("blocked-mods");
+        for (String modId : blockedModIdList) {
             String modIdLower = modId.toLowerCase();
-            // Check both known mods and custom mods
-            ModDefinition mod = knownMods.get(modIdLower);
-            if (mod == null) {
-                mod = customMods.get(modIdLower);
+            // External mods override built-in ones, which take precedence over custom mods
+            ExternalCatalogue.ExternalMod external = getExternalCatalogueMods().get(modIdLower);
+            ModDefinition mod = external != null ? external.definition : knownMods.get(modIdLower);
+            if (mod != null) {
+                // Matched through the catalogue trie or the external mod's patterns
+                blockedIds.add(modIdLower);
+                blockedKnownChannels += mod.getChannels().size();
+                plugin.getLogger().info(prefix + "Loaded mod: " + mod.getName() + " (" + mod.getChannels().size() + " channels)");
+                continue;
             }
+            mod = customMods.get(modIdLower);
 
             if (mod != null) {
-                for (String channel : mod.getChannels()) {
-                    Pattern pattern = wildcardToRegex(channel);
-                    patterns.add(pattern);
-                    patternToModName.put(pattern, mod.getName());
-                }
-                plugin.getLogger().info("Loaded mod: " + mod.getName() + " (" + mod.getChannels().size() + " channels)");
+                blockPatterns.addAll(mod.getChannels());
+                plugin.getLogger().info(prefix + "Loaded mod: " + mod.getName() + " (" + mod.getChannels().size() + " channels)");
+            } else if (externalCatalogue != null) {
+                // May still show up in the external catalogue later
+                blockedIds.add(modIdLower);
+                plugin.getLogger().warning(prefix + "Unknown mod ID in config: " + modId + " (applies once it is added to the external catalogue)");
             } else {
-                plugin.getLogger().warning("Unknown mod ID in config: " + modId);
+                plugin.getLogger().warning(prefix + "Unknown mod ID in config: " + modId);
+            }
+        }
+
+        List<String> customPatterns = section.getStringList("custom-patterns");
+        blockPatterns.addAll(customPatterns);
+
+        String permission = name.equals(RuleProfile.DEFAULT) ? null : section.getString("permission");
+        Set<String> worlds = name.equals(RuleProfile.DEFAULT) ? Set.of() : Set.copyOf(section.getStringList("worlds"));
+        plugin.getLogger().info("Loaded " + prefix + (blockPatterns.size() + blockedKnownChannels)
+                + " channel patterns in " + mode + " mode");
+        return new RuleProfile(name, mode, permission == null || permission.isBlank() ? null : permission, worlds,
+                Set.copyOf(blockedIds), WildcardMatcher.compile(blockPatterns));
+    }
+
+    private void loadFingerprints(FileConfiguration config) {
+        this.fingerprintsEnabled = config.getBoolean("fingerprints.enabled", false);
+        this.fingerprintSettleTicks = Math.max(1, config.getInt("fingerprints.settle-ticks", 40));
+
+        Map<Long, ClientFingerprinter.KnownClient> table = new HashMap<>();
+        ConfigurationSection knownSection = config.getConfigurationSection("fingerprints.known");
+        if (knownSection != null) {
+            for (String id : knownSection.getKeys(false)) {
+                ConfigurationSection section = knownSection.getConfigurationSection(id);
+                if (section == null) continue;
+                String signatureStr = section.getString("signature", "");
+                Long signature = ClientFingerprinter.parseSignature(signatureStr);
+                if (signature == null) {
+                    plugin.getLogger().warning("Known client '" + id + "' has an invalid signature '" + signatureStr + "', skipping");
+                    continue;
+                }
+                ClientFingerprinter.KnownClient previous = table.put(signature, new ClientFingerprinter.KnownClient(
+                        id, section.getString("name", id), section.getBoolean("block", false)));
+                if (previous != null) {
+                    plugin.getLogger().warning("Known clients '" + previous.id + "' and '" + id + "' share a signature; using '" + id + "'");
+                }
+            }
+        }
+        this.knownClients = Map.copyOf(table);
+        if (fingerprintsEnabled && !table.isEmpty()) {
+            plugin.getLogger().info("Loaded " + table.size() + " known client fingerprints");
+        }
+    }
+
+    private void loadChannelLimits(FileConfiguration config) {
+        this.maxChannelsPerPlayer = Math.max(1, config.getInt("channel-limits.max-per-player", 256));
+        String action = config.getString("channel-limits.action", "kick");
+        this.channelFloodAction = switch (action.toLowerCase()) {
+            case "kick" -> ChannelFloodAction.KICK;
+            case "ignore" -> ChannelFloodAction.IGNORE;
+            default -> {
+                plugin.getLogger().warning("Unsupported channel-limits.action '" + action + "', using kick");
+                yield ChannelFloodAction.KICK;
+            }
+        };
+        this.maxStoredChannelsPerPlayer = Math.max(0, config.getInt("channel-limits.max-stored-per-player", 64));
+        this.maxDiscoveredChannels = Math.max(0, config.getInt("channel-limits.max-discovered", 10000));
+    }
+
+    private void loadLoadShedding(FileConfiguration config) {
+        this.loadSheddingEnabled = config.getBoolean("load-shedding.enabled", true);
+        this.loadSheddingEnterRate = Math.max(1, config.getInt("load-shedding.enter-events-per-second", 400));
+        this.loadSheddingExitRate = Math.max(0, config.getInt("load-shedding.exit-events-per-second", 100));
+        if (loadSheddingExitRate >= loadSheddingEnterRate) {
+            // Without a gap between the two the mode would flap every second around the threshold
+            plugin.getLogger().warning("load-shedding.exit-events-per-second must be below enter-events-per-second, using "
+                    + loadSheddingEnterRate / 4);
+            this.loadSheddingExitRate = loadSheddingEnterRate / 4;
+        }
+        this.loadSheddingCalmSeconds = Math.max(1, config.getInt("load-shedding.calm-seconds", 5));
+        this.loadSheddingDrainPerTick = Math.max(1, config.getInt("load-shedding.drain-per-tick", 20));
+        this.loadSheddingMaxBacklog = Math.max(0, config.getInt("load-shedding.max-backlog", 20000));
+    }
+
+    private void loadExternalCatalogue(FileConfiguration config) {
+        boolean enabled = config.getBoolean("external-catalogue.enabled", false);
+        String configuredPath = config.getString("external-catalogue.path", "mods.d");
+        Path path = plugin.getDataFolder().toPath().resolve(configuredPath).normalize();
+
+        if (externalCatalogue != null && (!enabled || !externalCatalogue.getPath().equals(path))) {
+            externalCatalogue.close();
+            externalCatalogue = null;
+        }
+        if (!enabled) {
+            return;
+        }
+
+        if (externalCatalogue != null) {
+            // Same location: pick up anything the watcher may have missed, still diffing per mod
+            externalCatalogue.rescan();
+            return;
+        }
+        String fileName = path.getFileName().toString().toLowerCase();
+        if (!Files.exists(path) && !fileName.endsWith(".yml") && !fileName.endsWith(".yaml")) {
+            try {
+                Files.createDirectories(path);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to create external catalogue directory " + path + ": " + e.getMessage());
+            }
+        }
+        externalCatalogue = new ExternalCatalogue(plugin.getLogger(), path, this::onExternalCatalogueChanged);
+        externalCatalogue.start();
+        plugin.getLogger().info("Loaded " + externalCatalogue.getMods().size() + " external mod definitions from " + path);
+    }
+
+    /**
+     * Called on the watcher thread after the external catalogue swapped in new definitions.
+     */
+    private void onExternalCatalogueChanged(ExternalCatalogue.Change change) {
+        refreshBlockedKnownMods();
+        plugin.onCatalogueChanged(change.modIds, change.patterns);
+    }
+
+    /**
+     * Recomputes which built-in mods each profile's trie lookup treats as blocked: those listed in its blocked-mods
+     * that the external catalogue does not override. Cached verdicts are dropped since they may now differ.
+     */
+    private void refreshBlockedKnownMods() {
+        Map<String, ExternalCatalogue.ExternalMod> external = getExternalCatalogueMods();
+        for (RuleProfile profile : profiles.values()) {
+            boolean[] mask = new boolean[catalogue != null ? catalogue.getMods().size() : 0];
+            for (String id : profile.blockedModIds) {
+                int index = catalogue != null ? catalogue.indexOf(id) : -1;
+                if (index >= 0 && !external.containsKey(id)) {
+                    mask[index] = true;
+                }
             }
+            profile.blockedKnownMods = mask;
+            profile.invalidate();
+        }
+    }
+
+    private Map<String, ExternalCatalogue.ExternalMod> getExternalCatalogueMods() {
+        ExternalCatalogue external = externalCatalogue;
+        return external != null ? external.getMods() : Map.of();
+    }
+
+    void reportMemory(MemoryReport report) {
+        long modBytes = 0;
+        for (ModDefinition mod : knownMods.values()) {
+            modBytes += modDefinition(mod);
+        }
+        report.add("Known mod definitions", knownMods.size(), MemoryReport.hashEntries(knownMods.size()) + modBytes);
+
+        CustomModPatterns custom = customModPatterns;
+        long customBytes = MemoryReport.hashEntries(customMods.size()) + custom.matcher.estimateBytes()
+                + MemoryReport.arrayList(custom.names.size());
+        for (ModDefinition mod : customMods.values()) {
+            customBytes += modDefinition(mod);
+        }
+        report.add("Custom mods and patterns", customMods.size() + custom.matcher.size(), customBytes);
+
+        long profileBytes = 0;
+        long verdicts = 0;
+        long patterns = 0;
+        for (RuleProfile profile : profiles.values()) {
+            patterns += profile.patterns.size();
+            profileBytes += profile.patterns.estimateBytes() + MemoryReport.strings(profile.blockedModIds);
+            // Keys are channel names already held by the listener
+            verdicts += profile.cachedVerdictCount();
         }
+        report.add("Rule profile patterns", patterns, profileBytes);
+        report.add("Rule verdict caches", verdicts, MemoryReport.hashEntries(verdicts));
+    }
 
-        List<String> customPatterns = config.getStringList("custom-patterns");
-        for (String patternStr : customPatterns) {
-            Pattern pattern = wildcardToRegex(patternStr);
-            patterns.add(pattern);
-            patternToModName.put(pattern, patternStr);
+    private static long modDefinition(ModDefinition mod) {
+        return MemoryReport.OBJECT + 4 * MemoryReport.REFERENCE + MemoryReport.string(mod.getId())
+                + MemoryReport.string(mod.getName()) + MemoryReport.string(mod.getDescription())
+                + MemoryReport.arrayList(mod.getChannels().size()) + MemoryReport.strings(mod.getChannels());
+    }
+
+    /**
+     * Drops the per-profile verdict caches; they refill as channels are checked again.
+     */
+    void shrinkCaches() {
+        for (RuleProfile profile : profiles.values()) {
+            profile.invalidate();
         }
+    }
 
-        plugin.getLogger().info("Loaded " + patterns.size() + " channel patterns in " + mode + " mode");
+    public void shutdown() {
+        if (externalCatalogue != null) {
+            externalCatalogue.close();
+            externalCatalogue = null;
+        }
+    }
+
+    private StorageCompression parseStorageCompression(String value) {
+        return switch (value.toLowerCase()) {
+            case "none" -> StorageCompression.NONE;
+            case "gzip" -> StorageCompression.GZIP;
+            default -> {
+                // Falling back to the default keeps a typo from converting the history to another format
+                plugin.getLogger().warning("Unsupported storage-compression '" + value + "', using none (the default)");
+                yield StorageCompression.NONE;
+            }
+        };
+    }
+
+    private Durability parseDurability(String value) {
+        return switch (value.toLowerCase()) {
+            case "periodic" -> Durability.PERIODIC;
+            case "group-commit" -> Durability.GROUP_COMMIT;
+            case "relaxed" -> Durability.RELAXED;
+            default -> {
+                plugin.getLogger().warning("Unsupported durability.mode '" + value + "', using periodic");
+                yield Durability.PERIODIC;
+            }
+        };
     }
 
     private void loadCustomMods(FileConfiguration config) {
@@ -163,39 +541,28 @@ public class ModFilterConfig {
     private void loadKnownMods() {
         knownMods.clear();
 
-        try (InputStream stream = plugin.getResource("mods.yml")) {
-            if (stream == null) {
-                plugin.getLogger().warning("Could not find mods.yml resource");
-                return;
-            }
-
-            YamlConfiguration modsConfig = YamlConfiguration.loadConfiguration(new InputStreamReader(stream));
-            ConfigurationSection modsSection = modsConfig.getConfigurationSection("mods");
-
-            if (modsSection == null) {
-                plugin.getLogger().warning("No 'mods' section found in mods.yml");
+        if (catalogue == null) {
+            long start = System.nanoTime();
+            try (InputStream stream = plugin.getResource(ModCatalogue.RESOURCE)) {
+                if (stream == null) {
+                    plugin.getLogger().warning("Could not find " + ModCatalogue.RESOURCE + " resource");
+                    return;
+                }
+                catalogue = ModCatalogue.read(stream);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Failed to load " + ModCatalogue.RESOURCE + ": " + e.getMessage());
                 return;
             }
+            plugin.getLogger().info("Loaded " + catalogue.getMods().size() + " known mod definitions in "
+                    + (System.nanoTime() - start) / 1000 + "us");
+        }
 
-            for (String modId : modsSection.getKeys(false)) {
-                ConfigurationSection modSection = modsSection.getConfigurationSection(modId);
-                if (modSection == null) continue;
-
-                String name = modSection.getString("name", modId);
-                String description = modSection.getString("description", "");
-                List<String> channels = modSection.getStringList("channels");
-
-                knownMods.put(modId.toLowerCase(), new ModDefinition(modId, name, description, channels));
-            }
-
-            plugin.getLogger().info("Loaded " + knownMods.size() + " known mod definitions");
-
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to load mods.yml: " + e.getMessage());
+        for (ModDefinition mod : catalogue.getMods()) {
+            knownMods.put(mod.getId().toLowerCase(), mod);
         }
     }
 
-    private Pattern wildcardToRegex(String wildcard) {
+    static Pattern wildcardToRegex(String wildcard) {
         StringBuilder regex = new StringBuilder("^");
         for (char c : wildcard.toCharArray()) {
             switch (c) {
@@ -221,30 +588,84 @@ public class ModFilterConfig {
     }
 
     public boolean matchesPattern(String channel) {
-        for (Pattern pattern : patterns) {
-            if (pattern.matcher(channel).matches()) {
-                return true;
+        return matchesPattern(defaultProfile, channel);
+    }
+
+    boolean matchesPattern(RuleProfile profile, String channel) {
+        Map<String, ExternalCatalogue.ExternalMod> external = getExternalCatalogueMods();
+        if (!external.isEmpty()) {
+            for (String id : profile.blockedModIds) {
+                ExternalCatalogue.ExternalMod mod = external.get(id);
+                if (mod != null && mod.matches(channel)) {
+                    return true;
+                }
             }
         }
-        return false;
+        if (catalogue != null && catalogue.matchesAny(channel, profile.blockedKnownMods)) {
+            return true;
+        }
+        return profile.patterns.matchesAny(channel);
     }
 
     public String getModName(String channel) {
-        // Check all known mods (not just blocked ones) for name resolution
-        for (Map.Entry<Pattern, String> entry : allModPatterns.entrySet()) {
-            if (entry.getKey().matcher(channel).matches()) {
-                return entry.getValue();
+        // Check all mods (not just blocked ones) for name resolution; custom definitions take precedence
+        CustomModPatterns custom = customModPatterns;
+        int match = custom.matcher.firstMatch(channel);
+        if (match >= 0) {
+            return custom.names.get(match);
+        }
+        Map<String, ExternalCatalogue.ExternalMod> external = getExternalCatalogueMods();
+        for (ExternalCatalogue.ExternalMod mod : external.values()) {
+            if (mod.matches(channel)) {
+                return mod.definition.getName();
             }
         }
-        return channel;
+        // Built-in mods the external catalogue redefined are skipped, so a channel falls through to the next match
+        ModDefinition known = catalogue != null ? catalogue.lookup(channel, external.keySet()) : null;
+        return known != null ? known.getName() : channel;
     }
 
     public boolean shouldBlock(String channel) {
-        boolean matches = matchesPattern(channel);
-        return switch (mode) {
-            case BLACKLIST -> matches;
-            case WHITELIST -> !matches;
-        };
+        return shouldBlock(defaultProfile, channel);
+    }
+
+    boolean shouldBlock(RuleProfile profile, String channel) {
+        return profile.shouldBlock(channel, c -> matchesPattern(profile, c));
+    }
+
+    /**
+     * The first permission profile the player has, or null. Checks every permission profile, so callers resolve it
+     * once per join or reload rather than per lookup.
+     */
+    RuleProfile permissionProfileFor(Player player) {
+        for (RuleProfile profile : permissionProfiles) {
+            if (player.hasPermission(profile.permission)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The profile for a world, falling back to the default.
+     */
+    RuleProfile worldProfile(String world) {
+        return worldProfiles.getOrDefault(world, defaultProfile);
+    }
+
+    /**
+     * The profile that applies to a player: a permission profile if they have one, else their world's.
+     */
+    RuleProfile profileFor(Player player) {
+        RuleProfile profile = permissionProfileFor(player);
+        return profile != null ? profile : worldProfile(player.getWorld().getName());
+    }
+
+    /**
+     * All profiles by lowercase name, the default first.
+     */
+    Map<String, RuleProfile> getProfiles() {
+        return profiles;
     }
 
     public Map<String, ModDefinition> getKnownMods() {
@@ -255,8 +676,17 @@ public class ModFilterConfig {
         return customMods;
     }
 
+    /**
+     * Mods from the external catalogue, keyed by lowercase ID; empty when it is disabled.
+     */
+    public Map<String, ModDefinition> getExternalMods() {
+        Map<String, ModDefinition> mods = new TreeMap<>();
+        getExternalCatalogueMods().forEach((id, mod) -> mods.put(id, mod.definition));
+        return mods;
+    }
+
     public Mode getMode() {
-        return mode;
+        return defaultProfile.mode;
     }
 
     public boolean isKick() {
@@ -287,6 +717,131 @@ public class ModFilterConfig {
         return logAllChannels;
     }
 
+    public StorageCompression getStorageCompression() {
+        return storageCompression;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * How long a group commit waits for more records before writing, in milliseconds.
+     */
+    public int getGroupCommitWindowMillis() {
+        return groupCommitWindowMillis;
+    }
+
+    public boolean isSessionCheckpointsEnabled() {
+        return sessionCheckpointsEnabled;
+    }
+
+    /**
+     * How often an open session's checkpoint is refreshed when nothing else about it changed, in seconds.
+     */
+    public int getSessionCheckpointIntervalSeconds() {
+        return sessionCheckpointIntervalSeconds;
+    }
+
+    /**
+     * Estimated heap the plugin may use before the memory governor frees some; 0 means no limit.
+     */
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * Read at startup.
+     */
+    public int getMemoryCheckIntervalSeconds() {
+        return memoryCheckIntervalSeconds;
+    }
+
+    public boolean isSharedStorageEnabled() {
+        return sharedStorageEnabled;
+    }
+
+    public String getSharedStorageDirectory() {
+        return sharedStorageDirectory;
+    }
+
+    public String getSharedStorageNodeId() {
+        return sharedStorageNodeId;
+    }
+
+    public int getSharedStoragePollSeconds() {
+        return sharedStoragePollSeconds;
+    }
+
+    public int getReloadRecheckPlayersPerTick() {
+        return reloadRecheckPlayersPerTick;
+    }
+
+    /**
+     * Worker threads for registration, kick and quit processing; 0 handles them on the main thread. Read at startup.
+     */
+    public int getEventPipelineThreads() {
+        return eventPipelineThreads;
+    }
+
+    /**
+     * Channels tracked per player per session; registrations past this are rejected without being looked at.
+     */
+    public int getMaxChannelsPerPlayer() {
+        return maxChannelsPerPlayer;
+    }
+
+    public ChannelFloodAction getChannelFloodAction() {
+        return channelFloodAction;
+    }
+
+    /**
+     * Unknown channels kept in each stored player record and session; the rest are only counted.
+     */
+    public int getMaxStoredChannelsPerPlayer() {
+        return maxStoredChannelsPerPlayer;
+    }
+
+    public int getMaxDiscoveredChannels() {
+        return maxDiscoveredChannels;
+    }
+
+    public boolean isLoadSheddingEnabled() {
+        return loadSheddingEnabled;
+    }
+
+    public int getLoadSheddingEnterRate() {
+        return loadSheddingEnterRate;
+    }
+
+    public int getLoadSheddingExitRate() {
+        return loadSheddingExitRate;
+    }
+
+    public int getLoadSheddingCalmSeconds() {
+        return loadSheddingCalmSeconds;
+    }
+
+    public int getLoadSheddingDrainPerTick() {
+        return loadSheddingDrainPerTick;
+    }
+
+    public int getLoadSheddingMaxBacklog() {
+        return loadSheddingMaxBacklog;
+    }
+
+    public boolean isFingerprintsEnabled() {
+        return fingerprintsEnabled;
+    }
+
+    public int getFingerprintSettleTicks() {
+        return fingerprintSettleTicks;
+    }
+
+    Map<Long, ClientFingerprinter.KnownClient> getKnownClients() {
+        return knownClients;
+    }
+
     public String formatLogMessage(String playerName, String channel) {
         return logFormat
                 .replace("%player%", playerName)
@@ -10,19 +10,33 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRegisterChannelEvent;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class ModMessageListener implements Listener, PluginMessageListener {
 
+    // Shown in place of a mod name for players kicked by channel-limits
+    private static final String CHANNEL_FLOOD = "Channel flooding";
+
     private final ModDetectorPlugin plugin;
     private final ModFilterConfig config;
     private final DetectionLogger detectionLogger;
@@ -32,17 +46,72 @@ public class ModMessageListener implements Listener, PluginMessageListener {
     private final Map<UUID, Set<String>> allRegisteredChannels = new ConcurrentHashMap<>();
     private final Map<UUID, Instant> sessionStartTimes = new ConcurrentHashMap<>();
     private final Set<UUID> pendingKicks = ConcurrentHashMap.newKeySet();
+    // Players past channel-limits.max-per-player; further registrations are dropped on arrival
+    private final Set<UUID> floodedPlayers = ConcurrentHashMap.newKeySet();
+    // Players whose session was logged for a kick that has not reached the main thread yet
+    private final Set<UUID> kicking = ConcurrentHashMap.newKeySet();
+    // Rule profile in effect for each online player, resolved on join, world change and reload
+    private final Map<UUID, RuleProfile> playerProfiles = new ConcurrentHashMap<>();
+    private final ClientFingerprinter fingerprinter;
+    // Most players register the same few dozen channels; share one String per channel name
+    private final Map<String, String> channelNames = new ConcurrentHashMap<>();
+    // Bumped on every reload re-check so a newer reload supersedes batches still queued from an older one
+    private final AtomicInteger recheckGeneration = new AtomicInteger();
+    private final EventPipeline pipeline;
+    private final Scheduling scheduling;
+    private final LoadShedder loadShedder;
 
     public ModMessageListener(ModDetectorPlugin plugin, ModFilterConfig config, DetectionLogger detectionLogger) {
         this.plugin = plugin;
         this.config = config;
         this.detectionLogger = detectionLogger;
+        this.fingerprinter = new ClientFingerprinter(config);
+        this.scheduling = plugin.getScheduling();
+        this.pipeline = new EventPipeline(plugin.getLogger(), config.getEventPipelineThreads());
+        this.loadShedder = new LoadShedder(config, plugin.getLogger(), pipeline);
         startCleanupTask();
+        startFingerprintTask();
+        scheduling.runGlobalTimer(loadShedder::tick, 1L, 1L);
     }
 
     private void startCleanupTask() {
         // Clean up stale entries every 5 minutes (6000 ticks)
-        Bukkit.getScheduler().runTaskTimer(plugin, this::cleanupStaleEntries, 6000L, 6000L);
+        scheduling.runGlobalTimer(this::cleanupStaleEntries, 6000L, 6000L);
+    }
+
+    private void startFingerprintTask() {
+        // Cheap when nobody is waiting to be fingerprinted
+        scheduling.runGlobalTimer(() -> {
+            if (config.isFingerprintsEnabled()) {
+                fingerprinter.settle(config.getFingerprintSettleTicks() * 50L, this::brandOf, this::onIdentified);
+            }
+        }, 10L, 10L);
+    }
+
+    private String brandOf(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        return player != null ? player.getClientBrandName() : null;
+    }
+
+    private void onIdentified(UUID uuid, ClientFingerprinter.Identification identification) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            fingerprinter.remove(uuid);
+            return;
+        }
+        ClientFingerprinter.KnownClient client = identification.client;
+        if (config.isDebug()) {
+            plugin.getLogger().info("[DEBUG] " + player.getName() + " fingerprint " + identification.signatureHex()
+                    + (client != null ? " (" + client.name + ")" : ""));
+        }
+        if (client == null || !client.block || player.hasPermission("moddetector.bypass")) {
+            return;
+        }
+        Set<String> known = detectedChannels.get(uuid);
+        if (known == null || !known.contains(client.name)) {
+            handleDetection(uuid, player.getName(), client.name, "fingerprint " + identification.signatureHex(),
+                    "[ModDetector] Player " + player.getName() + " matched known client fingerprint: " + client.name);
+        }
     }
 
     private void cleanupStaleEntries() {
@@ -56,7 +125,15 @@ public class ModMessageListener implements Listener, PluginMessageListener {
         sessionStartTimes.keySet().removeIf(uuid -> !onlineUuids.contains(uuid));
         detectedChannels.keySet().removeIf(uuid -> !onlineUuids.contains(uuid));
         allRegisteredChannels.keySet().removeIf(uuid -> !onlineUuids.contains(uuid));
+        playerProfiles.keySet().removeIf(uuid -> !onlineUuids.contains(uuid));
+        fingerprinter.retainOnly(onlineUuids);
         pendingKicks.removeIf(uuid -> !onlineUuids.contains(uuid));
+        kicking.removeIf(uuid -> !onlineUuids.contains(uuid));
+        floodedPlayers.removeIf(uuid -> !onlineUuids.contains(uuid));
+        // Drop names no online player still uses
+        Set<String> liveChannels = new HashSet<>();
+        allRegisteredChannels.values().forEach(liveChannels::addAll);
+        channelNames.keySet().retainAll(liveChannels);
 
         if (config.isDebug()) {
             plugin.getLogger().info("[DEBUG] Cleaned up stale tracking entries");
@@ -65,40 +142,130 @@ public class ModMessageListener implements Listener, PluginMessageListener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        loadShedder.recordEvent();
         Player player = event.getPlayer();
         sessionStartTimes.put(player.getUniqueId(), Instant.now());
+        playerProfiles.put(player.getUniqueId(), config.profileFor(player));
+    }
+
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        UUID uuid = player.getUniqueId();
+        RuleProfile current = profileOf(player);
+        // Permission profiles apply in every world
+        if (current.isPermissionProfile()) {
+            return;
+        }
+        RuleProfile next = config.worldProfile(player.getWorld().getName());
+        if (next == current) {
+            return;
+        }
+        playerProfiles.put(uuid, next);
+
+        if (config.isDebug()) {
+            plugin.getLogger().info("[DEBUG] " + player.getName() + " moved from profile " + current.name + " to " + next.name);
+        }
+        Set<String> channels = allRegisteredChannels.get(uuid);
+        if (channels == null || player.hasPermission("moddetector.bypass")) {
+            return;
+        }
+        // Verdicts are cached per profile, so this is a lookup per channel for any channel seen before
+        for (String channel : channels) {
+            if (config.shouldBlock(next, channel)) {
+                Set<String> known = detectedChannels.get(uuid);
+                if (known == null || !known.contains(config.getModName(channel))) {
+                    handleBlockedChannel(player, channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * The rule profile that applies to a player, resolving it if the join event has not been seen yet (channels can
+     * be registered before the player joins).
+     */
+    RuleProfile profileOf(Player player) {
+        return playerProfiles.computeIfAbsent(player.getUniqueId(), k -> config.profileFor(player));
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onChannelRegister(PlayerRegisterChannelEvent event) {
+        // Only what needs the Player object happens here; the rest runs on the player's pipeline lane
+        loadShedder.recordEvent();
         Player player = event.getPlayer();
+        UUID uuid = player.getUniqueId();
+        if (floodedPlayers.contains(uuid)) {
+            return;
+        }
+        String name = player.getName();
         String channel = event.getChannel();
+        boolean bypass = player.hasPermission("moddetector.bypass");
+        RuleProfile profile = profileOf(player);
+        Instant joinTime = sessionStartTimes.get(uuid);
+        pipeline.submit(uuid, () -> processRegistration(uuid, name, channel, bypass, profile, joinTime));
+    }
 
-        if (config.isDebug()) {
-            plugin.getLogger().info("[DEBUG] Player " + player.getName() + " registered channel: " + channel);
+    private void processRegistration(UUID uuid, String name, String rawChannel, boolean bypass, RuleProfile profile,
+                                     Instant joinTime) {
+        // The session was already logged for a kick; channels sent in the meantime would start a stray one
+        if (kicking.contains(uuid) || floodedPlayers.contains(uuid)) {
+            return;
         }
 
         // Always track all channels in memory for /md info command
-        UUID uuid = player.getUniqueId();
-        Set<String> channels = allRegisteredChannels.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet());
+        Set<String> channels = allRegisteredChannels.get(uuid);
+        if (channels == null) {
+            // Only this lane adds a player's set, so nothing can race in between
+            channels = ConcurrentHashMap.newKeySet();
+            allRegisteredChannels.put(uuid, channels);
+            detectionLogger.openSession(uuid, name, joinTime != null ? joinTime : Instant.now(), channels);
+        }
+        if (channels.size() >= config.getMaxChannelsPerPlayer() && !channels.contains(rawChannel)) {
+            // Checked before interning or matching, so a flood costs nothing beyond this
+            onChannelFlood(uuid, name, bypass, channels.size());
+            return;
+        }
+        String channel = channelNames.computeIfAbsent(rawChannel, n -> n);
+
+        if (config.isDebug()) {
+            plugin.getLogger().info("[DEBUG] Player " + name + " registered channel: " + channel);
+        }
+
         if (channels.add(channel)) {
-            // New channel registered - log to file if log-all-channels is enabled
+            if (config.isFingerprintsEnabled()) {
+                fingerprinter.onChannel(uuid, channel);
+            }
+            // New channel registered - log to file if log-all-channels is enabled (deferred during join storms)
             if (config.isLogAllChannels()) {
-                detectionLogger.logChannelRegistration(player, channel, sessionStartTimes.get(uuid));
+                loadShedder.runOrDefer(uuid, () -> detectionLogger.logChannelRegistration(uuid, name, channel, joinTime));
             }
         }
 
-        if (player.hasPermission("moddetector.bypass")) {
+        if (bypass) {
             return;
         }
 
-        if (config.shouldBlock(channel)) {
-            handleBlockedChannel(player, channel);
+        DetectionEvents.ChannelClassification event = new DetectionEvents.ChannelClassification();
+        event.begin();
+        boolean block = config.shouldBlock(profile, channel);
+        event.end();
+        if (event.shouldCommit()) {
+            event.channel = channel;
+            event.profile = profile.name;
+            event.verdict = block ? "blocked" : "allowed";
+            event.commit();
+        }
+        if (block) {
+            handleBlockedChannel(uuid, name, channel);
         }
     }
 
     @Override
     public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (floodedPlayers.contains(player.getUniqueId())) {
+            return;
+        }
         if (config.isDebug()) {
             plugin.getLogger().info("[DEBUG] Received plugin message from " + player.getName() + " on channel: " + channel);
         }
@@ -107,108 +274,171 @@ public class ModMessageListener implements Listener, PluginMessageListener {
             return;
         }
 
-        if (config.shouldBlock(channel)) {
+        if (config.shouldBlock(profileOf(player), channel)) {
             handleBlockedChannel(player, channel);
         }
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
+        loadShedder.recordEvent();
         Player player = event.getPlayer();
         UUID uuid = player.getUniqueId();
+        String name = player.getName();
 
+        // Removed here rather than on the lane so a quick rejoin cannot have its new session start time taken
         Instant joinTime = sessionStartTimes.remove(uuid);
         Instant leaveTime = Instant.now();
+        pendingKicks.remove(uuid);
+        playerProfiles.remove(uuid);
 
+        pipeline.submit(uuid, () -> processQuit(uuid, name, joinTime, leaveTime));
+    }
+
+    private void processQuit(UUID uuid, String name, Instant joinTime, Instant leaveTime) {
         // Get all channels registered this session
         Set<String> channels = allRegisteredChannels.remove(uuid);
         detectedChannels.remove(uuid);
-        pendingKicks.remove(uuid);
+        fingerprinter.remove(uuid);
+        floodedPlayers.remove(uuid);
+        if (kicking.remove(uuid)) {
+            // Already logged when the kick was processed
+            return;
+        }
 
         // Log session with all mods and channels
         if (channels != null && !channels.isEmpty()) {
-            // Resolve channels into known mods and unknown channels
-            Set<String> sessionMods = new java.util.LinkedHashSet<>();
-            Set<String> sessionUnknownChannels = new java.util.LinkedHashSet<>();
+            Set<String> sessionMods = new LinkedHashSet<>();
+            Set<String> sessionUnknownChannels = new LinkedHashSet<>();
+            resolveChannels(channels, sessionMods, sessionUnknownChannels);
+            detectionLogger.logDetection(uuid, name, sessionMods, sessionUnknownChannels, joinTime, leaveTime);
+        }
+        detectionLogger.closeSession(uuid, leaveTime);
+    }
 
-            for (String channel : channels) {
-                String modName = config.getModName(channel);
-                if (!modName.equals(channel)) {
-                    // Known mod
-                    sessionMods.add(modName);
-                } else {
-                    // Unknown channel
-                    sessionUnknownChannels.add(channel);
-                }
+    /**
+     * Splits channels into known mods and unknown channels.
+     */
+    private void resolveChannels(Set<String> channels, Set<String> mods, Set<String> unknownChannels) {
+        for (String channel : channels) {
+            String modName = config.getModName(channel);
+            if (!modName.equals(channel)) {
+                mods.add(modName);
+            } else {
+                unknownChannels.add(channel);
             }
-
-            detectionLogger.logDetection(player, sessionMods, sessionUnknownChannels, joinTime, leaveTime);
         }
     }
 
     private void handleBlockedChannel(Player player, String channel) {
-        UUID uuid = player.getUniqueId();
+        handleBlockedChannel(player.getUniqueId(), player.getName(), channel);
+    }
+
+    private void handleBlockedChannel(UUID uuid, String name, String channel) {
+        handleDetection(uuid, name, config.getModName(channel), channel, config.formatLogMessage(name, channel));
+    }
 
-        String modName = config.getModName(channel);
+    /**
+     * Records a blocked mod or client, notifies admins and schedules the kick. Safe to call from a pipeline lane;
+     * anything touching players is marshalled to the main thread.
+     *
+     * @param source the channel, or whatever else identified the mod, shown to admins
+     */
+    private void handleDetection(UUID uuid, String name, String modName, String source, String logMessage) {
         Set<String> playerMods = detectedChannels.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet());
         boolean isNewDetection = playerMods.add(modName);
 
-        // Always log to console
-        String logMessage = config.formatLogMessage(player.getName(), channel);
-        plugin.getLogger().warning(logMessage);
+        // Always log to console; during a join storm the warning and notification wait, the kick does not
+        loadShedder.runOrDefer(uuid, () -> plugin.getLogger().warning(logMessage));
 
         if (config.isNotifyAdmins()) {
-            notifyAdmins(player, modName, channel);
+            loadShedder.runOrDefer(uuid, () -> scheduling.executeGlobal(() -> notifyAdmins(name, modName, source)));
         }
 
         if (config.isKick()) {
-            // Schedule kick with batching
-            if (pendingKicks.add(uuid)) {
-                Bukkit.getScheduler().runTaskLater(plugin, () -> executeKick(player), 20L);
-            }
+            scheduleKick(uuid);
         }
         // Note: Session logging now happens on quit via onPlayerQuit
     }
 
-    private void executeKick(Player player) {
-        UUID uuid = player.getUniqueId();
-        pendingKicks.remove(uuid);
+    /**
+     * Stops tracking a player who registered more channels than channel-limits.max-per-player, and kicks them if
+     * configured. Everything they register afterwards is dropped on arrival.
+     */
+    private void onChannelFlood(UUID uuid, String name, boolean bypass, int tracked) {
+        if (!floodedPlayers.add(uuid)) {
+            return;
+        }
+        boolean kick = config.getChannelFloodAction() == ModFilterConfig.ChannelFloodAction.KICK && !bypass;
+        plugin.getLogger().warning("[ModDetector] Player " + name + " registered more than " + tracked
+                + " channels; " + (kick ? "kicking" : "ignoring further channels"));
+        if (config.isNotifyAdmins()) {
+            loadShedder.runOrDefer(uuid, () -> scheduling.executeGlobal(
+                    () -> notifyAdmins(name, CHANNEL_FLOOD, tracked + "+ channels")));
+        }
+        if (kick) {
+            detectedChannels.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(CHANNEL_FLOOD);
+            scheduleKick(uuid);
+        }
+    }
+
+    private void scheduleKick(UUID uuid) {
+        // Schedule kick with batching
+        if (pendingKicks.add(uuid)) {
+            // Resolve the player where that is allowed, then wait on the thread that owns them
+            scheduling.executeGlobal(() -> {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null) {
+                    scheduling.runFor(player, () -> executeKick(uuid), 20L);
+                } else {
+                    pendingKicks.remove(uuid);
+                }
+            });
+        }
+    }
 
-        if (!player.isOnline()) {
-            detectedChannels.remove(uuid);
+    private void executeKick(UUID uuid) {
+        pendingKicks.remove(uuid);
+        Player player = Bukkit.getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            pipeline.submit(uuid, () -> {
+                detectedChannels.remove(uuid);
+                allRegisteredChannels.remove(uuid);
+            });
             sessionStartTimes.remove(uuid);
-            allRegisteredChannels.remove(uuid);
             return;
         }
 
+        Instant joinTime = sessionStartTimes.get(uuid);
+        Instant kickTime = Instant.now();
+        pipeline.submit(uuid, () -> processKick(player, uuid, player.getName(), joinTime, kickTime));
+    }
+
+    /**
+     * Logs the kicked player's session on their lane, then hands the kick itself back to the thread that owns them.
+     * {@code player} is only used to schedule the kick.
+     */
+    private void processKick(Player player, UUID uuid, String name, Instant joinTime, Instant kickTime) {
         Set<String> blockedMods = detectedChannels.remove(uuid);
         if (blockedMods == null || blockedMods.isEmpty()) {
             return;
         }
 
-        Instant joinTime = sessionStartTimes.remove(uuid);
-        Instant kickTime = Instant.now();
-
         // Get all channels and resolve to mods/unknown
         Set<String> allChannels = allRegisteredChannels.remove(uuid);
-        Set<String> sessionMods = new java.util.LinkedHashSet<>();
-        Set<String> sessionUnknownChannels = new java.util.LinkedHashSet<>();
+        Set<String> sessionMods = new LinkedHashSet<>();
+        Set<String> sessionUnknownChannels = new LinkedHashSet<>();
 
         if (allChannels != null) {
-            for (String channel : allChannels) {
-                String modName = config.getModName(channel);
-                if (!modName.equals(channel)) {
-                    sessionMods.add(modName);
-                } else {
-                    sessionUnknownChannels.add(channel);
-                }
-            }
+            resolveChannels(allChannels, sessionMods, sessionUnknownChannels);
         } else {
             // Fallback to blocked mods if no channel data
             sessionMods.addAll(blockedMods);
         }
 
-        detectionLogger.logDetection(player, sessionMods, sessionUnknownChannels, joinTime, kickTime);
+        kicking.add(uuid);
+        detectionLogger.logDetection(uuid, name, sessionMods, sessionUnknownChannels, joinTime, kickTime);
+        detectionLogger.closeSession(uuid, kickTime);
 
         String modList = String.join(", ", blockedMods);
         Component kickComponent = miniMessage.deserialize(
@@ -216,7 +446,184 @@ public class ModMessageListener implements Listener, PluginMessageListener {
                 Placeholder.unparsed("mods", modList)
         );
 
-        player.kick(kickComponent);
+        if (!plugin.isEnabled()) {
+            return;
+        }
+        scheduling.runFor(player, () -> {
+            DetectionEvents.KickBatch event = new DetectionEvents.KickBatch();
+            event.begin();
+            boolean online = player.isOnline();
+            if (online) {
+                // The quit this triggers sees the kicking mark and skips logging the session again
+                sessionStartTimes.remove(uuid);
+                player.kick(kickComponent);
+            } else {
+                kicking.remove(uuid);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.trigger = "detection";
+                event.players = 1;
+                event.kicked = online ? 1 : 0;
+                event.commit();
+            }
+        }, 0);
+    }
+
+    /**
+     * Re-checks online players after the catalogue changed, but only the channels matched by the old or new
+     * patterns of the changed mods; every other channel's verdict cannot have changed.
+     *
+     * @return number of players with at least one affected channel
+     */
+    public int reevaluate(List<Pattern> changedPatterns) {
+        // Cached fingerprint identifications hold mod names that may have changed
+        fingerprinter.clearCache();
+        int affectedPlayers = 0;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Set<String> channels = allRegisteredChannels.get(player.getUniqueId());
+            if (channels == null || channels.isEmpty()) continue;
+
+            boolean affected = false;
+            boolean bypass = player.hasPermission("moddetector.bypass");
+            RuleProfile profile = profileOf(player);
+            for (String channel : channels) {
+                if (!matchesAny(changedPatterns, channel)) continue;
+                affected = true;
+                if (!bypass && config.shouldBlock(profile, channel)) {
+                    handleBlockedChannel(player, channel);
+                }
+            }
+            if (affected) affectedPlayers++;
+        }
+        return affectedPlayers;
+    }
+
+    /**
+     * Re-checks every online player against the rules after {@code /md reload}. Must be called on the main thread
+     * (the global region on Folia).
+     *
+     * <p>Profiles are re-resolved and channel sets snapshotted and deduplicated here, then each distinct channel is
+     * checked once per profile, in parallel, off the main thread, so the work grows with the number of distinct
+     * channels rather than players times patterns.
+     * The resulting detections are applied back on the main thread a few players per tick so a large server does not
+     * get a burst of kicks and notifications in a single tick.
+     *
+     * @param report receives a summary line on the main thread once every flagged player has been handled
+     * @return number of online players whose channels are being re-checked
+     */
+    public int recheckAll(Consumer<String> report) {
+        int generation = recheckGeneration.incrementAndGet();
+
+        // Players on the same profile with identical channel sets (the common case) share one entry
+        Map<RuleProfile, Map<Set<String>, List<UUID>>> playersByChannels = new HashMap<>();
+        int players = 0;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            // The reload replaced every profile and permissions may have changed since join
+            RuleProfile profile = config.profileFor(player);
+            playerProfiles.put(player.getUniqueId(), profile);
+            Set<String> channels = allRegisteredChannels.get(player.getUniqueId());
+            if (channels == null || channels.isEmpty() || player.hasPermission("moddetector.bypass")) continue;
+            playersByChannels.computeIfAbsent(profile, k -> new HashMap<>())
+                    .computeIfAbsent(Set.copyOf(channels), k -> new ArrayList<>())
+                    .add(player.getUniqueId());
+            players++;
+        }
+        if (playersByChannels.isEmpty()) {
+            report.accept("no online players to re-check");
+            return 0;
+        }
+
+        scheduling.runAsync(() -> {
+            long start = System.nanoTime();
+            Map<UUID, List<String>> flagged = new HashMap<>();
+            int distinctChannels = 0;
+            int channelSets = 0;
+            for (Map.Entry<RuleProfile, Map<Set<String>, List<UUID>>> byProfile : playersByChannels.entrySet()) {
+                RuleProfile profile = byProfile.getKey();
+                Set<String> distinct = new HashSet<>();
+                byProfile.getValue().keySet().forEach(distinct::addAll);
+                Set<String> blocked = distinct.parallelStream()
+                        .filter(channel -> config.shouldBlock(profile, channel))
+                        .collect(Collectors.toSet());
+                distinctChannels += distinct.size();
+                channelSets += byProfile.getValue().size();
+                if (blocked.isEmpty()) continue;
+
+                byProfile.getValue().forEach((channels, uuids) -> {
+                    List<String> hits = channels.stream().filter(blocked::contains).toList();
+                    if (!hits.isEmpty()) {
+                        uuids.forEach(uuid -> flagged.put(uuid, hits));
+                    }
+                });
+            }
+            long tookMicros = (System.nanoTime() - start) / 1000;
+            if (config.isDebug()) {
+                plugin.getLogger().info("[DEBUG] Reload re-check: " + distinctChannels + " distinct channels in "
+                        + channelSets + " channel sets, " + flagged.size() + " player(s) flagged, " + tookMicros + "us");
+            }
+
+            int checked = distinctChannels;
+            scheduling.runGlobal(() -> applyRecheck(generation, flagged, checked, report));
+        });
+        return players;
+    }
+
+    private void applyRecheck(int generation, Map<UUID, List<String>> flagged, int distinctChannels,
+                              Consumer<String> report) {
+        Iterator<Map.Entry<UUID, List<String>>> pending = flagged.entrySet().iterator();
+        int perTick = config.getReloadRecheckPlayersPerTick();
+        int[] detected = {0};
+        Scheduling.Task[] task = new Scheduling.Task[1];
+        task[0] = scheduling.runGlobalTimer(() -> {
+            if (generation != recheckGeneration.get()) {
+                // A newer reload is re-checking everyone against newer rules
+                task[0].cancel();
+                return;
+            }
+            DetectionEvents.KickBatch event = new DetectionEvents.KickBatch();
+            event.begin();
+            int checked = 0;
+            int detectedBefore = detected[0];
+            for (int i = 0; i < perTick && pending.hasNext(); i++) {
+                checked++;
+                Map.Entry<UUID, List<String>> entry = pending.next();
+                Player player = Bukkit.getPlayer(entry.getKey());
+                if (player == null || !player.isOnline() || player.hasPermission("moddetector.bypass")) continue;
+
+                boolean newlyDetected = false;
+                for (String channel : entry.getValue()) {
+                    // Already-detected mods were handled when the channel was registered
+                    Set<String> known = detectedChannels.get(entry.getKey());
+                    if (known == null || !known.contains(config.getModName(channel))) {
+                        handleBlockedChannel(player, channel);
+                        newlyDetected = true;
+                    }
+                }
+                if (newlyDetected) detected[0]++;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.trigger = "reload re-check";
+                event.players = checked;
+                // Detected players are kicked a second later, through the same path as any detection
+                event.kicked = detected[0] - detectedBefore;
+                event.commit();
+            }
+            if (!pending.hasNext()) {
+                task[0].cancel();
+                report.accept(detected[0] + " newly detected player(s) (" + distinctChannels + " distinct channels checked)");
+            }
+        }, 0L, 1L);
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String channel) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(channel).matches()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Map<UUID, Set<String>> getDetectedChannels() {
@@ -227,9 +634,78 @@ public class ModMessageListener implements Listener, PluginMessageListener {
         return allRegisteredChannels;
     }
 
-    private void notifyAdmins(Player offender, String modName, String channel) {
+    /**
+     * Players with an open session. Safe off the main thread, unlike the server's online player list.
+     */
+    Set<UUID> getOnlinePlayerIds() {
+        return sessionStartTimes.keySet();
+    }
+
+    void reportMemory(MemoryReport report) {
+        // The strings are interned names or catalogue mod names, counted under the interner, so only the sets count
+        report.add("Registered channels (online)", allRegisteredChannels.size(), stringSets(allRegisteredChannels));
+        report.add("Detected mods (online)", detectedChannels.size(), stringSets(detectedChannels));
+        report.add("Session start times", sessionStartTimes.size(),
+                MemoryReport.hashEntries(sessionStartTimes.size()) + sessionStartTimes.size() * (MemoryReport.UUID + MemoryReport.INSTANT));
+        report.add("Player profiles", playerProfiles.size(),
+                MemoryReport.hashEntries(playerProfiles.size()) + playerProfiles.size() * MemoryReport.UUID);
+        long names = MemoryReport.hashEntries(channelNames.size());
+        for (String name : channelNames.keySet()) {
+            names += MemoryReport.string(name);
+        }
+        report.add("Channel name interner", channelNames.size(), names);
+    }
+
+    private static long stringSets(Map<UUID, Set<String>> sets) {
+        long bytes = MemoryReport.hashEntries(sets.size());
+        for (Set<String> set : sets.values()) {
+            bytes += MemoryReport.UUID + MemoryReport.hashEntries(set.size());
+        }
+        return bytes;
+    }
+
+    /**
+     * Forgets interned channel names; sessions keep the instances they hold, and new registrations intern afresh.
+     */
+    void shrinkCaches() {
+        channelNames.clear();
+    }
+
+    LoadShedder getLoadShedder() {
+        return loadShedder;
+    }
+
+    EventPipeline getPipeline() {
+        return pipeline;
+    }
+
+    int getPipelineThreads() {
+        return pipeline.getThreadCount();
+    }
+
+    int getPipelineQueued() {
+        return pipeline.getQueued();
+    }
+
+    /**
+     * Finishes queued event processing; call before the detection logger's final flush.
+     */
+    public void shutdown() {
+        pipeline.shutdown();
+        loadShedder.drainAll();
+    }
+
+    /**
+     * The client fingerprint of an online player, or null if fingerprinting is off or their channels have not
+     * settled yet.
+     */
+    ClientFingerprinter.Identification getFingerprint(UUID uuid) {
+        return fingerprinter.getIdentification(uuid);
+    }
+
+    private void notifyAdmins(String offenderName, String modName, String channel) {
         Component message = Component.text("[ModDetector] ", NamedTextColor.RED)
-                .append(Component.text(offender.getName(), NamedTextColor.YELLOW))
+                .append(Component.text(offenderName, NamedTextColor.YELLOW))
                 .append(Component.text(" detected using: ", NamedTextColor.GRAY))
                 .append(Component.text(modName, NamedTextColor.GOLD))
                 .append(Component.text(" (" + channel + ")", NamedTextColor.DARK_GRAY));
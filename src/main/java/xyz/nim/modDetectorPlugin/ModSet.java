@@ -0,0 +1,201 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, sorted set of mod names, content-addressed by a 64-bit hash of its contents.
+ *
+ * <p>Most players join with one of a handful of mod packs, so every session and player record refers to the one
+ * canonical instance for its mods instead of holding a copy. On disk, records store only the ID and the sets
+ * themselves are kept once in a separate dictionary file ({@code modsets.json}). Because the ID depends only on the
+ * contents, servers sharing a store agree on IDs without coordinating, and two sessions have the same mods exactly
+ * when they reference the same instance.
+ */
+public final class ModSet extends AbstractSet<String> {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Map<Long, ModSet> TABLE = new ConcurrentHashMap<>();
+
+    public static final ModSet EMPTY = canonical(new String[0]);
+
+    private final long id;
+    private final String[] mods;
+    // Whether this set is in this server's dictionary file; sets seen only in other nodes' files are not
+    private volatile boolean persisted;
+
+    private ModSet(long id, String[] mods) {
+        this.id = id;
+        this.mods = mods;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIdHex() {
+        return formatId(id);
+    }
+
+    @Override
+    public int size() {
+        return mods.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String s && Arrays.binarySearch(mods, s) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < mods.length;
+            }
+
+            @Override
+            public String next() {
+                if (next >= mods.length) {
+                    throw new NoSuchElementException();
+                }
+                return mods[next++];
+            }
+        };
+    }
+
+    boolean isPersisted() {
+        return persisted;
+    }
+
+    void markPersisted() {
+        persisted = true;
+    }
+
+    /**
+     * The canonical set with these mods.
+     */
+    public static ModSet of(Collection<String> mods) {
+        if (mods instanceof ModSet set) {
+            return set;
+        }
+        if (mods == null || mods.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = mods.stream().distinct().sorted().toArray(String[]::new);
+        return canonical(sorted);
+    }
+
+    /**
+     * The canonical set holding the mods of both.
+     */
+    public static ModSet union(Collection<String> a, Collection<String> b) {
+        if (b == null || b.isEmpty() || (a != null && a.containsAll(b))) {
+            return of(a);
+        }
+        if (a == null || a.isEmpty()) {
+            return of(b);
+        }
+        Set<String> all = new HashSet<>(a);
+        all.addAll(b);
+        return of(all);
+    }
+
+    /**
+     * The canonical set with one more mod.
+     */
+    public static ModSet with(Collection<String> mods, String mod) {
+        return mods != null && mods.contains(mod) ? of(mods) : union(mods, Set.of(mod));
+    }
+
+    /**
+     * Looks up a set by ID, or returns null if it has not been read or created yet.
+     */
+    static ModSet byId(long id) {
+        return TABLE.get(id);
+    }
+
+    /**
+     * Adds a set read from a dictionary file under its stored ID.
+     *
+     * @param own whether the file is this server's own dictionary
+     * @return the canonical instance
+     */
+    static ModSet register(long id, Collection<String> mods, boolean own) {
+        String[] sorted = mods.stream().distinct().sorted().toArray(String[]::new);
+        ModSet set = TABLE.computeIfAbsent(id, k -> new ModSet(id, sorted));
+        if (!Arrays.equals(set.mods, sorted)) {
+            // Only possible with a corrupt dictionary; the 64-bit IDs do not collide at realistic table sizes
+            throw new IllegalStateException("Mod set " + formatId(id) + " is already defined with other contents");
+        }
+        if (own) {
+            set.markPersisted();
+        }
+        return set;
+    }
+
+    static int tableSize() {
+        return TABLE.size();
+    }
+
+    /**
+     * The table's sets and arrays; the mod names in them are the catalogue's strings.
+     */
+    static long estimateTableBytes() {
+        long bytes = MemoryReport.hashEntries(TABLE.size());
+        for (ModSet set : TABLE.values()) {
+            bytes += MemoryReport.OBJECT + 16 + MemoryReport.BOXED_LONG + 16 + set.mods.length * MemoryReport.REFERENCE;
+        }
+        return bytes;
+    }
+
+    private static ModSet canonical(String[] sorted) {
+        long id = hash(sorted);
+        ModSet found = TABLE.get(id);
+        if (found == null) {
+            found = TABLE.computeIfAbsent(id, k -> new ModSet(id, sorted));
+        }
+        if (!Arrays.equals(found.mods, sorted)) {
+            // The ID is the hash alone, so every node derives the same one; probing would depend on which set each
+            // node saw first. The 64-bit IDs do not collide at realistic table sizes, as register() also assumes
+            throw new IllegalStateException("Mod set " + formatId(id) + " collides with another set's ID");
+        }
+        return found;
+    }
+
+    /**
+     * FNV-1a over the sorted names, each followed by a separator.
+     */
+    private static long hash(String[] sorted) {
+        long hash = FNV_OFFSET;
+        for (String mod : sorted) {
+            for (int i = 0; i < mod.length(); i++) {
+                char c = mod.charAt(i);
+                hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+            hash = (hash ^ 0xFF) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static String formatId(long id) {
+        return String.format("%016x", id);
+    }
+
+    static long parseId(String hex) {
+        return Long.parseUnsignedLong(hex, 16);
+    }
+}
@@ -0,0 +1,284 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * How many distinct players used each mod and unknown channel, and in how many sessions, over the last
+ * {@value #DAYS} days.
+ *
+ * <p>Each day has its own bucket holding a {@link HyperLogLog} of players per mod and per channel plus a
+ * {@link CountMinSketch} of sessions, and the oldest bucket is reused when a new day starts. Memory is therefore fixed:
+ * at most {@value #MAX_MODS} mods and {@value #MAX_CHANNELS} channels get a player sketch per day, and keys past that
+ * are still counted in the session sketch. Answering {@code /md stats top} merges at most {@value #DAYS} buckets and
+ * does not depend on how much history is stored.
+ */
+final class PopularityStats {
+
+    enum Kind {
+        MOD,
+        CHANNEL
+    }
+
+    /**
+     * One row of {@code /md stats top}.
+     */
+    static final class Entry {
+        final String name;
+        final long players;     // Estimated distinct players
+        final long sessions;    // Estimated sessions, never under the true count
+
+        Entry(String name, long players, long sessions) {
+            this.name = name;
+            this.players = players;
+            this.sessions = sessions;
+        }
+    }
+
+    static final int DAYS = 7;
+    static final int MAX_MODS = 256;
+    static final int MAX_CHANNELS = 256;
+
+    private static final int MAGIC = 0x4d445354;  // "MDST"
+    private static final int VERSION = 1;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final class Bucket {
+        final long day;
+        final HyperLogLog players = new HyperLogLog();
+        final CountMinSketch sessions;
+        final Map<String, HyperLogLog> mods = new HashMap<>();
+        final Map<String, HyperLogLog> channels = new HashMap<>();
+
+        Bucket(long day, CountMinSketch sessions) {
+            this.day = day;
+            this.sessions = sessions;
+        }
+
+        Map<String, HyperLogLog> keys(Kind kind) {
+            return kind == Kind.MOD ? mods : channels;
+        }
+    }
+
+    private final Bucket[] buckets = new Bucket[DAYS];
+    private boolean dirty;
+
+    /**
+     * Adds one finished session, attributed to the day it ended.
+     */
+    synchronized void recordSession(UUID uuid, long epochSecond, Collection<String> mods, Collection<String> channels) {
+        Bucket bucket = bucketFor(Math.floorDiv(epochSecond, 86400));
+        if (bucket == null) {
+            return;
+        }
+        long player = HyperLogLog.hash(uuid);
+        bucket.players.add(player);
+        record(bucket, Kind.MOD, mods, player, MAX_MODS);
+        if (channels != null) {
+            record(bucket, Kind.CHANNEL, channels, player, MAX_CHANNELS);
+        }
+        dirty = true;
+    }
+
+    private static void record(Bucket bucket, Kind kind, Collection<String> names, long player, int maxKeys) {
+        Map<String, HyperLogLog> keys = bucket.keys(kind);
+        for (String name : names) {
+            bucket.sessions.add(hash(kind, name));
+            HyperLogLog sketch = keys.get(name);
+            if (sketch == null) {
+                if (keys.size() >= maxKeys) continue;
+                sketch = new HyperLogLog();
+                keys.put(name, sketch);
+            }
+            sketch.add(player);
+        }
+    }
+
+    /**
+     * The bucket for a day, replacing the one it displaces in the ring; null for days already outside the window.
+     */
+    private Bucket bucketFor(long day) {
+        int slot = (int) Math.floorMod(day, (long) DAYS);
+        Bucket bucket = buckets[slot];
+        if (bucket != null && bucket.day == day) {
+            return bucket;
+        }
+        if (bucket != null && bucket.day > day) {
+            return null;
+        }
+        bucket = new Bucket(day, new CountMinSketch());
+        buckets[slot] = bucket;
+        return bucket;
+    }
+
+    /**
+     * The most widely used mods or channels over the last {@code days} days, by estimated distinct players.
+     */
+    synchronized List<Entry> top(Kind kind, int days, int limit, long today) {
+        Map<String, HyperLogLog> merged = new HashMap<>();
+        List<Bucket> window = window(days, today);
+        for (Bucket bucket : window) {
+            bucket.keys(kind).forEach((name, sketch) ->
+                    merged.computeIfAbsent(name, k -> new HyperLogLog()).merge(sketch));
+        }
+        List<Entry> entries = new ArrayList<>(merged.size());
+        merged.forEach((name, sketch) -> {
+            long key = hash(kind, name);
+            long sessions = 0;
+            for (Bucket bucket : window) {
+                sessions += bucket.sessions.estimate(key);
+            }
+            entries.add(new Entry(name, sketch.estimate(), sessions));
+        });
+        entries.sort(Comparator.comparingLong((Entry e) -> e.players).reversed()
+                .thenComparing(e -> e.name));
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries;
+    }
+
+    /**
+     * Estimated distinct players with at least one session over the last {@code days} days.
+     */
+    synchronized long distinctPlayers(int days, long today) {
+        HyperLogLog merged = new HyperLogLog();
+        for (Bucket bucket : window(days, today)) {
+            merged.merge(bucket.players);
+        }
+        return merged.estimate();
+    }
+
+    private List<Bucket> window(int days, long today) {
+        List<Bucket> window = new ArrayList<>(DAYS);
+        for (Bucket bucket : buckets) {
+            if (bucket != null && bucket.day > today - days && bucket.day <= today) {
+                window.add(bucket);
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Fixed apart from the number of keys, which is capped per day.
+     */
+    synchronized long estimateBytes() {
+        long bytes = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket == null) continue;
+            bytes += 2L * HyperLogLog.REGISTERS + 4L * CountMinSketch.DEPTH * CountMinSketch.WIDTH;
+            for (Map<String, HyperLogLog> keys : List.of(bucket.mods, bucket.channels)) {
+                bytes += MemoryReport.hashEntries(keys.size());
+                for (String name : keys.keySet()) {
+                    bytes += MemoryReport.string(name) + MemoryReport.OBJECT + HyperLogLog.REGISTERS;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Serializes the buckets if anything changed since the last call, or returns null.
+     */
+    synchronized byte[] snapshotIfDirty() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            int present = 0;
+            for (Bucket bucket : buckets) {
+                if (bucket != null) present++;
+            }
+            out.writeInt(present);
+            for (Bucket bucket : buckets) {
+                if (bucket == null) continue;
+                out.writeLong(bucket.day);
+                out.write(bucket.players.registers());
+                for (int[] row : bucket.sessions.counts()) {
+                    for (int count : row) {
+                        out.writeInt(count);
+                    }
+                }
+                writeKeys(out, bucket.mods);
+                writeKeys(out, bucket.channels);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeKeys(DataOutputStream out, Map<String, HyperLogLog> keys) throws IOException {
+        out.writeInt(keys.size());
+        for (Map.Entry<String, HyperLogLog> entry : keys.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.write(entry.getValue().registers());
+        }
+    }
+
+    /**
+     * Replaces the buckets with ones read from {@code in}, as written by {@link #snapshotIfDirty}.
+     *
+     * @throws IOException if the data is truncated or not a stats file
+     */
+    synchronized void read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("not a stats file or unsupported version");
+        }
+        int present = data.readInt();
+        Bucket[] loaded = new Bucket[DAYS];
+        for (int i = 0; i < present; i++) {
+            long day = data.readLong();
+            byte[] players = new byte[HyperLogLog.REGISTERS];
+            data.readFully(players);
+            int[][] counts = new int[CountMinSketch.DEPTH][CountMinSketch.WIDTH];
+            for (int[] row : counts) {
+                for (int c = 0; c < row.length; c++) {
+                    row[c] = data.readInt();
+                }
+            }
+            Bucket bucket = new Bucket(day, new CountMinSketch(counts));
+            bucket.players.merge(new HyperLogLog(players));
+            readKeys(data, bucket.mods);
+            readKeys(data, bucket.channels);
+            loaded[(int) Math.floorMod(day, (long) DAYS)] = bucket;
+        }
+        System.arraycopy(loaded, 0, buckets, 0, DAYS);
+    }
+
+    private static void readKeys(DataInputStream in, Map<String, HyperLogLog> keys) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] registers = new byte[HyperLogLog.REGISTERS];
+            in.readFully(registers);
+            keys.put(name, new HyperLogLog(registers));
+        }
+    }
+
+    /**
+     * FNV-1a over the kind and name, so a mod and a channel with the same name count separately.
+     */
+    private static long hash(Kind kind, String name) {
+        long hash = (FNV_OFFSET ^ kind.ordinal()) * FNV_PRIME;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return HyperLogLog.mix(hash);
+    }
+}
@@ -0,0 +1,77 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * One compiled set of blocking rules: the top-level settings form the {@code default} profile, and each entry under
+ * {@code profiles:} in config.yml adds another that applies in some worlds or to players with a permission.
+ *
+ * <p>Verdicts are cached per channel, so once a channel has been checked against a profile, moving a player into a
+ * world with that profile is a map lookup per channel rather than another pass over the patterns.
+ */
+final class RuleProfile {
+
+    static final String DEFAULT = "default";
+
+    // Clients can register arbitrary channel names; past this, verdicts are computed without being cached
+    private static final int MAX_CACHED_VERDICTS = 4096;
+
+    final String name;
+    final ModFilterConfig.Mode mode;
+    final String permission;            // Null unless the profile is selected by permission
+    final Set<String> worlds;
+    final Set<String> blockedModIds;    // Built-in and external mod IDs, lowercase
+    final WildcardMatcher patterns;     // Blocked custom mods and custom-patterns
+
+    // Built-in mods to block through the catalogue trie; recomputed when the external catalogue changes
+    volatile boolean[] blockedKnownMods = new boolean[0];
+
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    RuleProfile(String name, ModFilterConfig.Mode mode, String permission, Set<String> worlds,
+                Set<String> blockedModIds, WildcardMatcher patterns) {
+        this.name = name;
+        this.mode = mode;
+        this.permission = permission;
+        this.worlds = worlds;
+        this.blockedModIds = blockedModIds;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Whether the profile blocks the channel, computing it with {@code matcher} (does any rule match) on a cache miss.
+     */
+    boolean shouldBlock(String channel, Predicate<String> matcher) {
+        Boolean cached = verdicts.get(channel);
+        if (cached != null) {
+            return cached;
+        }
+        boolean matches = matcher.test(channel);
+        boolean block = switch (mode) {
+            case BLACKLIST -> matches;
+            case WHITELIST -> !matches;
+        };
+        if (verdicts.size() < MAX_CACHED_VERDICTS) {
+            verdicts.put(channel, block);
+        }
+        return block;
+    }
+
+    /**
+     * Forgets cached verdicts, after the mods they were computed from changed.
+     */
+    void invalidate() {
+        verdicts.clear();
+    }
+
+    boolean isPermissionProfile() {
+        return permission != null;
+    }
+
+    int cachedVerdictCount() {
+        return verdicts.size();
+    }
+}
@@ -0,0 +1,134 @@
+package xyz.nim.modDetectorPlugin;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules tasks on whichever thread owns the work, on both Paper and Folia.
+ *
+ * <p>On Folia there is no main thread: a player can only be touched from the thread ticking their region, server-wide
+ * work runs on the global region, and everything else must use the async scheduler. On Paper all three map onto the
+ * usual {@link org.bukkit.scheduler.BukkitScheduler} calls, so behaviour there is unchanged.
+ */
+final class Scheduling {
+
+    /**
+     * A repeating task that can be stopped.
+     */
+    interface Task {
+        void cancel();
+    }
+
+    private static final long MILLIS_PER_TICK = 50;
+
+    private final Plugin plugin;
+    private final boolean folia;
+
+    Scheduling(Plugin plugin) {
+        this.plugin = plugin;
+        this.folia = detectFolia();
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    boolean isFolia() {
+        return folia;
+    }
+
+    /**
+     * Whether the caller may touch server-wide state directly; never true on Folia, where such work is always
+     * handed to the global region.
+     */
+    boolean isGlobalThread() {
+        return !folia && Bukkit.isPrimaryThread();
+    }
+
+    /**
+     * Runs server-wide work: the main thread on Paper, the global region on Folia.
+     */
+    void runGlobal(Runnable task) {
+        if (folia) {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Like {@link #runGlobal}, but runs immediately when already on that thread. Dropped once the plugin is disabled,
+     * since nothing can be scheduled then.
+     */
+    void executeGlobal(Runnable task) {
+        if (isGlobalThread()) {
+            task.run();
+        } else if (plugin.isEnabled()) {
+            runGlobal(task);
+        }
+    }
+
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (folia) {
+            ScheduledTask scheduled = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, t -> task.run(), Math.max(1, delayTicks), periodTicks);
+            return scheduled::cancel;
+        }
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return scheduled::cancel;
+    }
+
+    /**
+     * Runs work on the thread that owns an entity, after a delay. On Folia the task is dropped if the entity is
+     * removed first (e.g. the player quit); on Paper it runs regardless, so it must still check.
+     */
+    void runFor(Entity entity, Runnable task, long delayTicks) {
+        if (folia) {
+            entity.getScheduler().execute(plugin, task, null, Math.max(1, delayTicks));
+        } else if (delayTicks > 0) {
+            Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Replies to a command sender from the thread that owns it.
+     */
+    void runFor(CommandSender sender, Runnable task) {
+        if (sender instanceof Entity entity) {
+            runFor(entity, task, 0);
+        } else {
+            runGlobal(task);
+        }
+    }
+
+    void runAsync(Runnable task) {
+        if (folia) {
+            Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+        } else {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (folia) {
+            ScheduledTask scheduled = Bukkit.getAsyncScheduler().runAtFixedRate(plugin, t -> task.run(),
+                    delayTicks * MILLIS_PER_TICK, periodTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+            return scheduled::cancel;
+        }
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks);
+        return scheduled::cancel;
+    }
+}
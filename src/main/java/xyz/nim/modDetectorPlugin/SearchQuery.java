@@ -0,0 +1,185 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A parsed {@code /md search} query, e.g. {@code mod=jade since=7d page=2}.
+ *
+ * <p>Filters: {@code mod=<id or name>}, {@code channel=<channel>}, {@code player=<name or uuid>},
+ * {@code since=<time>} and {@code until=<time>}, where a time is a relative age ({@code 30m}, {@code 12h},
+ * {@code 7d}), a date ({@code 2025-01-31}) or an ISO instant. Values containing spaces can be double-quoted.
+ */
+public class SearchQuery {
+
+    public static final int PAGE_SIZE = 10;
+
+    public String mod;          // Resolved mod name, as stored in the records
+    public String channel;
+    public String playerName;
+    public UUID playerUuid;
+    public long since;          // Epoch seconds, 0 = unbounded
+    public long until;          // Epoch seconds, 0 = unbounded
+    public int page = 1;
+
+    public boolean hasTimeRange() {
+        return since != 0 || until != 0;
+    }
+
+    /**
+     * Parses a query string.
+     *
+     * @throws IllegalArgumentException with a message suitable for the command sender
+     */
+    public static SearchQuery parse(String input, ModFilterConfig config) {
+        SearchQuery query = new SearchQuery();
+        long now = Instant.now().getEpochSecond();
+
+        for (String token : tokenize(input)) {
+            int eq = token.indexOf('=');
+            if (eq <= 0 || eq == token.length() - 1) {
+                throw new IllegalArgumentException("Expected key=value but got '" + token + "'");
+            }
+            String key = token.substring(0, eq).toLowerCase(Locale.ROOT);
+            String value = token.substring(eq + 1);
+
+            switch (key) {
+                case "mod" -> query.mod = resolveModName(value, config);
+                case "channel" -> query.channel = value;
+                case "player" -> {
+                    try {
+                        query.playerUuid = UUID.fromString(value);
+                    } catch (IllegalArgumentException e) {
+                        query.playerName = value;
+                    }
+                }
+                case "since" -> query.since = parseTime(value, now, false);
+                case "until" -> query.until = parseTime(value, now, true);
+                case "page" -> {
+                    try {
+                        query.page = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid page number: " + value);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown filter '" + key
+                        + "' (use mod, channel, player, since, until or page)");
+            }
+        }
+
+        if (query.mod == null && query.channel == null && query.playerName == null && query.playerUuid == null
+                && !query.hasTimeRange()) {
+            throw new IllegalArgumentException("Specify at least one of mod, channel, player, since or until");
+        }
+        return query;
+    }
+
+    /**
+     * Accepts either a mod ID from mods.yml, the external catalogue or custom-mods, or a display name as stored in
+     * the records.
+     */
+    private static String resolveModName(String value, ModFilterConfig config) {
+        String id = value.toLowerCase(Locale.ROOT);
+        ModFilterConfig.ModDefinition mod = config.getExternalMods().get(id);
+        if (mod == null) {
+            mod = config.getKnownMods().get(id);
+        }
+        if (mod == null) {
+            mod = config.getCustomMods().get(id);
+        }
+        return mod != null ? mod.getName() : value;
+    }
+
+    private static long parseTime(String value, long now, boolean endOfDay) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        char unit = lower.charAt(lower.length() - 1);
+        long unitSeconds = switch (unit) {
+            case 's' -> 1;
+            case 'm' -> 60;
+            case 'h' -> 3600;
+            case 'd' -> 86400;
+            case 'w' -> 7 * 86400;
+            default -> 0;
+        };
+        if (unitSeconds != 0) {
+            try {
+                return now - Long.parseLong(lower.substring(0, lower.length() - 1)) * unitSeconds;
+            } catch (NumberFormatException ignored) {
+                // Fall through to absolute formats
+            }
+        }
+        try {
+            LocalDate date = LocalDate.parse(value);
+            // A bare date as upper bound includes the whole day
+            LocalDate day = endOfDay ? date.plusDays(1) : date;
+            return day.atStartOfDay(ZoneOffset.UTC).toEpochSecond() - (endOfDay ? 1 : 0);
+        } catch (DateTimeParseException ignored) {
+            // Try a full instant next
+        }
+        try {
+            return Instant.parse(value).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time '" + value + "' (use e.g. 30m, 12h, 7d or 2025-01-31)");
+        }
+    }
+
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (!current.isEmpty()) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * One page of search results.
+     */
+    public static class Result {
+        public final List<Hit> hits;
+        public final int totalMatches;
+        public final int page;
+        public final int pageCount;
+        public final int candidatesChecked;
+        public final long tookMillis;
+
+        public Result(List<Hit> hits, int totalMatches, int page, int pageCount, int candidatesChecked, long tookMillis) {
+            this.hits = hits;
+            this.totalMatches = totalMatches;
+            this.page = page;
+            this.pageCount = pageCount;
+            this.candidatesChecked = candidatesChecked;
+            this.tookMillis = tookMillis;
+        }
+    }
+
+    public static class Hit {
+        public final DetectionLogger.PlayerChannelData data;
+        public final int matchingSessions;  // -1 when the query had no session-level criteria
+
+        public Hit(DetectionLogger.PlayerChannelData data, int matchingSessions) {
+            this.data = data;
+            this.matchingSessions = matchingSessions;
+        }
+    }
+}
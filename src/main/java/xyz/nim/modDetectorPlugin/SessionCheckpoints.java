@@ -0,0 +1,257 @@
+package xyz.nim.modDetectorPlugin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a small append-only file of the sessions still open, so a crash does not lose them.
+ *
+ * <p>A session is only logged to the history when the player quits or is kicked. Until then, a full record (name,
+ * join time, channels) is appended here when it starts, again whenever its channel set grows, and in between only a
+ * timestamp line every {@code session-checkpoints.interval-seconds}. After a clean shutdown the file holds nothing
+ * worth recovering; after a crash, {@link #recover} turns each open session into a closed one ending at its last
+ * checkpoint.
+ *
+ * <p>A closed session stays in the file until the history commit that contains it has been written; only then does
+ * {@link #compact} drop it. Recovery also skips sessions the history already has, so the overlap is harmless.
+ */
+final class SessionCheckpoints {
+
+    /**
+     * One line of the file. Timestamp-only lines leave {@code name} and {@code channels} unset.
+     */
+    private static final class Line {
+        String uuid;
+        String name;
+        long joinTime;
+        long checkpointTime;
+        List<String> channels;
+    }
+
+    /**
+     * A session as last written to (or read back from) the file.
+     */
+    static final class Session {
+        final UUID uuid;
+        final String name;
+        final long joinTime;
+        // Live set owned by the listener while open; a copy once read back
+        final Set<String> channels;
+        long checkpointTime;
+        int writtenChannels = -1;
+
+        Session(UUID uuid, String name, long joinTime, Set<String> channels) {
+            this.uuid = uuid;
+            this.name = name;
+            this.joinTime = joinTime;
+            this.channels = channels;
+        }
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private final Logger logger;
+    private final File file;
+    private final Map<UUID, Session> open = new ConcurrentHashMap<>();
+    // Closed sessions whose history commit may not have reached the disk yet, oldest first
+    private final List<Session> closing = new ArrayList<>();
+
+    SessionCheckpoints(Logger logger, File file) {
+        this.logger = logger;
+        this.file = file;
+    }
+
+    /**
+     * Starts tracking a session. {@code channels} is the listener's live set, read (never modified) when writing.
+     */
+    void open(UUID uuid, String name, long joinTime, Set<String> channels) {
+        open.put(uuid, new Session(uuid, name, joinTime, channels));
+    }
+
+    /**
+     * Ends a session whose history record has just been logged. It is kept until {@link #compact} confirms that
+     * record was committed.
+     */
+    synchronized void close(UUID uuid, long leaveTime) {
+        Session session = open.remove(uuid);
+        if (session != null) {
+            session.checkpointTime = leaveTime;
+            closing.add(session);
+        }
+    }
+
+    /**
+     * Appends a line for every open session that is new, gained channels, or was last checkpointed at least
+     * {@code intervalSeconds} ago.
+     */
+    synchronized void checkpoint(long now, int intervalSeconds, boolean force) {
+        List<Line> lines = new ArrayList<>();
+        for (Session session : open.values()) {
+            int channels = session.channels.size();
+            if (channels == 0) {
+                // Nothing the history would log yet
+                continue;
+            }
+            if (channels != session.writtenChannels) {
+                session.checkpointTime = now;
+                session.writtenChannels = channels;
+                lines.add(full(session));
+            } else if (now - session.checkpointTime >= intervalSeconds) {
+                session.checkpointTime = now;
+                Line line = new Line();
+                line.uuid = session.uuid.toString();
+                line.joinTime = session.joinTime;
+                line.checkpointTime = now;
+                lines.add(line);
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            write(channel, lines, force);
+        } catch (IOException e) {
+            logger.warning("Failed to checkpoint open sessions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sessions tracked, open or waiting for their history commit.
+     */
+    synchronized int size() {
+        return open.size() + closing.size();
+    }
+
+    /**
+     * How many closed sessions are waiting; read before a history commit and passed to {@link #compact} after it.
+     */
+    synchronized int closingCount() {
+        return closing.size();
+    }
+
+    /**
+     * Drops the first {@code committed} closed sessions, now safely in the history, and rewrites the file with one
+     * full line per session still worth keeping.
+     */
+    synchronized void compact(int committed, boolean force) {
+        closing.subList(0, Math.min(committed, closing.size())).clear();
+        List<Line> lines = new ArrayList<>();
+        for (Session session : closing) {
+            lines.add(full(session));
+        }
+        for (Session session : open.values()) {
+            if (!session.channels.isEmpty()) {
+                session.writtenChannels = session.channels.size();
+                lines.add(full(session));
+            }
+        }
+        if (lines.isEmpty() && file.length() == 0) {
+            return;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, lines, force);
+        } catch (IOException e) {
+            logger.warning("Failed to compact open sessions: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warning("Failed to replace " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the sessions left in the file by the previous run. Each stays pending until a later {@link #compact},
+     * so call this before the history commits anything.
+     */
+    synchronized List<Session> recover() {
+        if (!file.exists() || file.length() == 0) {
+            return List.of();
+        }
+        // Keyed by player and join time: a player who rejoined can have two sessions in the file
+        Map<String, Session> sessions = new LinkedHashMap<>();
+        int malformed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                if (text.isBlank()) continue;
+                Line line;
+                UUID uuid;
+                try {
+                    line = GSON.fromJson(text, Line.class);
+                    uuid = UUID.fromString(line.uuid);
+                } catch (JsonParseException | IllegalArgumentException | NullPointerException e) {
+                    // Usually a partial last line from the crash itself
+                    malformed++;
+                    continue;
+                }
+                String key = line.uuid + "/" + line.joinTime;
+                Session session = sessions.get(key);
+                if (line.channels != null) {
+                    Set<String> channels = new LinkedHashSet<>(line.channels);
+                    if (session != null) channels.addAll(session.channels);
+                    session = new Session(uuid, line.name, line.joinTime, channels);
+                    sessions.put(key, session);
+                }
+                if (session != null) {
+                    session.checkpointTime = Math.max(session.checkpointTime, line.checkpointTime);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to read " + file.getName() + ": " + e.getMessage());
+        }
+        if (malformed > 0) {
+            logger.warning("Skipped " + malformed + " malformed line(s) in " + file.getName());
+        }
+        closing.addAll(sessions.values());
+        return List.copyOf(sessions.values());
+    }
+
+    private static Line full(Session session) {
+        Line line = new Line();
+        line.uuid = session.uuid.toString();
+        line.name = session.name;
+        line.joinTime = session.joinTime;
+        line.checkpointTime = session.checkpointTime;
+        line.channels = new ArrayList<>(session.channels);
+        return line;
+    }
+
+    private static void write(FileChannel channel, List<Line> lines, boolean force) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        for (Line line : lines) {
+            GSON.toJson(line, writer);
+            writer.write('\n');
+        }
+        writer.flush();
+        if (force) {
+            channel.force(false);
+        }
+    }
+}
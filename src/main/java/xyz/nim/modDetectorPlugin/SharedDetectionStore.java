@@ -0,0 +1,448 @@
+package xyz.nim.modDetectorPlugin;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared detection storage for several servers (e.g. backends behind a proxy) pointed at one directory.
+ *
+ * <p>Every node only ever writes its own {@code <node>.detections.json} and {@code <node>.discovered-channels.json},
+ * so no locking is needed. This class tails the other nodes' files incrementally and keeps their latest record per
+ * player in memory; a player's history is merged across nodes only when it is read, with one map lookup per node.
+ *
+ * <p>For uncompressed files the offset of each player's latest line is kept too, so the memory governor can drop a
+ * remote record and have it read back from the node's file when next needed.
+ */
+final class SharedDetectionStore {
+
+    static final String DATA_SUFFIX = ".detections.json";
+    static final String COMPRESSED_DATA_SUFFIX = ".detections.json.gz";
+    static final String DISCOVERED_SUFFIX = ".discovered-channels.json";
+    static final String MOD_SETS_SUFFIX = ".modsets.json";
+
+    private static final Type STRING_SET_TYPE = new TypeToken<Set<String>>() {}.getType();
+    private static final Gson GSON = new Gson();
+
+    private final Logger logger;
+    private final Path directory;
+    private final String nodeId;
+    // Called for every record read from another node, so local indexes can cover the whole network
+    private final Consumer<DetectionLogger.PlayerChannelData> onRemoteRecord;
+    private final Map<String, NodeView> remoteNodes = new ConcurrentHashMap<>();
+
+    SharedDetectionStore(Logger logger, Path directory, String nodeId,
+                         Consumer<DetectionLogger.PlayerChannelData> onRemoteRecord) {
+        this.logger = logger;
+        this.directory = directory;
+        this.nodeId = nodeId;
+        this.onRemoteRecord = onRemoteRecord;
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    File dataFile(boolean compressed) {
+        return directory.resolve(nodeId + (compressed ? COMPRESSED_DATA_SUFFIX : DATA_SUFFIX)).toFile();
+    }
+
+    File discoveredChannelsFile() {
+        return directory.resolve(nodeId + DISCOVERED_SUFFIX).toFile();
+    }
+
+    File modSetsFile() {
+        return directory.resolve(nodeId + MOD_SETS_SUFFIX).toFile();
+    }
+
+    Set<String> getRemoteNodeIds() {
+        return remoteNodes.keySet();
+    }
+
+    /**
+     * Picks up whatever the other nodes appended since the last poll. Called periodically off the main thread.
+     */
+    synchronized void poll() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            logger.warning("Failed to scan shared store directory " + directory + ": " + e.getMessage());
+            return;
+        }
+        // Dictionaries first: a node appends new mod sets before the records that refer to them
+        files.sort(Comparator.comparing((Path file) -> !file.getFileName().toString().endsWith(MOD_SETS_SUFFIX)));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                if (name.endsWith(MOD_SETS_SUFFIX)) {
+                    NodeView node = remoteView(name, MOD_SETS_SUFFIX);
+                    if (node != null) node.refreshModSets(file);
+                } else if (name.endsWith(COMPRESSED_DATA_SUFFIX)) {
+                    NodeView node = remoteView(name, COMPRESSED_DATA_SUFFIX);
+                    if (node != null) node.refreshData(file, true);
+                } else if (name.endsWith(DATA_SUFFIX)) {
+                    NodeView node = remoteView(name, DATA_SUFFIX);
+                    if (node != null) node.refreshData(file, false);
+                } else if (name.endsWith(DISCOVERED_SUFFIX)) {
+                    NodeView node = remoteView(name, DISCOVERED_SUFFIX);
+                    if (node != null) node.refreshDiscovered(file);
+                }
+            } catch (IOException e) {
+                logger.warning("Failed to read shared store file " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the view for the node owning the given file, or null if it is one of our own files.
+     */
+    private NodeView remoteView(String fileName, String suffix) {
+        String node = fileName.substring(0, fileName.length() - suffix.length());
+        if (node.equals(nodeId)) {
+            return null;
+        }
+        return remoteNodes.computeIfAbsent(node, k -> new NodeView(onRemoteRecord));
+    }
+
+    /**
+     * Returns the player's history merged across this node's record and every other node's latest record, or the
+     * local record unchanged if no other node has seen the player.
+     */
+    DetectionLogger.PlayerChannelData mergeWithRemote(UUID uuid, DetectionLogger.PlayerChannelData local) {
+        List<DetectionLogger.PlayerChannelData> parts = new ArrayList<>();
+        if (local != null) {
+            parts.add(local);
+        }
+        for (NodeView node : remoteNodes.values()) {
+            DetectionLogger.PlayerChannelData remote = node.get(uuid);
+            if (remote != null) {
+                parts.add(remote);
+            }
+        }
+        if (parts.size() <= 1) {
+            return parts.isEmpty() ? null : parts.getFirst();
+        }
+        return merge(parts);
+    }
+
+    /**
+     * Visits each player seen only by other nodes exactly once, without collecting them into a set first.
+     */
+    void forEachRemoteOnlyPlayer(Set<UUID> local, Consumer<UUID> action) {
+        List<NodeView> nodes = new ArrayList<>(remoteNodes.values());
+        for (int i = 0; i < nodes.size(); i++) {
+            for (UUID uuid : nodes.get(i).players()) {
+                if (local.contains(uuid) || seenByEarlierNode(nodes, i, uuid)) continue;
+                action.accept(uuid);
+            }
+        }
+    }
+
+    private static boolean seenByEarlierNode(List<NodeView> nodes, int index, UUID uuid) {
+        for (int i = 0; i < index; i++) {
+            if (nodes.get(i).has(uuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void reportMemory(MemoryReport report, ToLongFunction<DetectionLogger.PlayerChannelData> estimate) {
+        long cached = 0;
+        long bytes = 0;
+        long offsets = 0;
+        for (NodeView node : remoteNodes.values()) {
+            for (DetectionLogger.PlayerChannelData data : node.records.values()) {
+                bytes += estimate.applyAsLong(data);
+            }
+            cached += node.records.size();
+            bytes += MemoryReport.hashEntries(node.records.size());
+            offsets += node.offsets.size();
+        }
+        report.add("Remote node records", cached, bytes);
+        report.add("Remote record offsets", offsets, MemoryReport.hashEntries(offsets)
+                + offsets * (MemoryReport.UUID + MemoryReport.BOXED_LONG));
+    }
+
+    /**
+     * Drops other nodes' records from memory until about {@code bytes} are freed, least recently seen first. Only
+     * records from uncompressed files can be dropped, since they are read back by offset; players in {@code online}
+     * are kept.
+     *
+     * @return records dropped
+     */
+    synchronized int evictColdRecords(long bytes, Set<UUID> online,
+                                      ToLongFunction<DetectionLogger.PlayerChannelData> estimate) {
+        List<Map.Entry<NodeView, DetectionLogger.PlayerChannelData>> candidates = new ArrayList<>();
+        for (NodeView node : remoteNodes.values()) {
+            for (DetectionLogger.PlayerChannelData data : node.records.values()) {
+                if (!online.contains(data.uuid) && node.offsets.containsKey(data.uuid)) {
+                    candidates.add(Map.entry(node, data));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastSeen));
+
+        int evicted = 0;
+        long freed = 0;
+        for (Map.Entry<NodeView, DetectionLogger.PlayerChannelData> candidate : candidates) {
+            if (freed >= bytes) break;
+            DetectionLogger.PlayerChannelData data = candidate.getValue();
+            if (candidate.getKey().records.remove(data.uuid, data)) {
+                freed += estimate.applyAsLong(data);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    Set<String> getRemoteDiscoveredChannels() {
+        Set<String> channels = new HashSet<>();
+        for (NodeView node : remoteNodes.values()) {
+            channels.addAll(node.discoveredChannels);
+        }
+        return channels;
+    }
+
+    /**
+     * Merges per-node records of one player. Sessions keep their canonical mod sets and are interleaved by join time.
+     */
+    static DetectionLogger.PlayerChannelData merge(List<DetectionLogger.PlayerChannelData> parts) {
+        DetectionLogger.PlayerChannelData merged = new DetectionLogger.PlayerChannelData(parts.getFirst().uuid, null);
+        List<DetectionLogger.SessionRecord> sessions = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        long latestSeen = Long.MIN_VALUE;
+
+        for (DetectionLogger.PlayerChannelData part : parts) {
+            if (part.lastSeen >= latestSeen && part.username != null) {
+                latestSeen = part.lastSeen;
+                merged.username = part.username;
+            }
+            if (part.previousNames != null) names.addAll(part.previousNames);
+            if (part.username != null) names.add(part.username);
+            merged.mods = ModSet.union(merged.mods, part.mods);
+            if (part.channels != null) merged.channels.addAll(part.channels);
+            merged.mergeOmitted(part.omittedChannels);
+            if (part.firstSeen != 0 && (merged.firstSeen == 0 || part.firstSeen < merged.firstSeen)) {
+                merged.firstSeen = part.firstSeen;
+            }
+            merged.lastSeen = Math.max(merged.lastSeen, part.lastSeen);
+            merged.totalTimePlayedSeconds += part.totalTimePlayedSeconds;
+            merged.sessionCount += part.sessionCount;
+
+            if (part.sessions != null) {
+                for (int i = 0; i < part.sessions.size(); i++) {
+                    DetectionLogger.SessionRecord s = part.sessions.get(i);
+                    DetectionLogger.SessionRecord copy = DetectionLogger.SessionRecord.full(s.joinTime, s.leaveTime,
+                            s.durationSeconds, DetectionLogger.getModsForSession(part.sessions, i), s.channels);
+                    copy.channelsOmitted = s.channelsOmitted;
+                    sessions.add(copy);
+                }
+            }
+        }
+
+        sessions.sort(Comparator.comparingLong(s -> s.joinTime));
+        merged.sessions = sessions;
+        // Names other nodes saw this player under count as previous names here
+        names.remove(merged.username);
+        merged.previousNames = names.isEmpty() ? null : names;
+        return merged;
+    }
+
+    /**
+     * Everything read so far from one other node's files.
+     */
+    private static final class NodeView {
+
+        private final Consumer<DetectionLogger.PlayerChannelData> onRecord;
+        // Records in memory; for an uncompressed file, every player also has the offset of their latest line
+        volatile Map<UUID, DetectionLogger.PlayerChannelData> records = new ConcurrentHashMap<>();
+        volatile Map<UUID, Long> offsets = new ConcurrentHashMap<>();
+        private volatile Path dataFile;
+        volatile Set<String> discoveredChannels = Set.of();
+
+        // Identity of the data file and how far into it we have read; a compaction replaces the file
+        private Object fileKey;
+        private long creationTime;
+        private long offset;
+        private long discoveredModified;
+        private long modSetsOffset;
+
+        NodeView(Consumer<DetectionLogger.PlayerChannelData> onRecord) {
+            this.onRecord = onRecord;
+        }
+
+        void refreshData(Path file, boolean compressed) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attributes.size();
+            boolean replaced = !Objects.equals(attributes.fileKey(), fileKey)
+                    || attributes.creationTime().toMillis() != creationTime
+                    || size < offset;
+            if (!replaced && size == offset) {
+                return;
+            }
+
+            if (compressed) {
+                // Only left behind by a node that wrote gzip before joining; shared nodes write uncompressed files,
+                // so this is read whole, once per change, until that node's next compaction replaces it
+                Map<UUID, DetectionLogger.PlayerChannelData> fresh = new ConcurrentHashMap<>();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        putRecord(fresh, line);
+                    }
+                } catch (EOFException e) {
+                    // The node is mid-write; keep what we had and re-read next poll
+                    return;
+                }
+                records = fresh;
+                offsets = new ConcurrentHashMap<>();
+                offset = size;
+            } else {
+                Map<UUID, DetectionLogger.PlayerChannelData> target = replaced ? new ConcurrentHashMap<>() : records;
+                Map<UUID, Long> targetOffsets = replaced ? new ConcurrentHashMap<>() : offsets;
+                long start = replaced ? 0 : offset;
+                offset = start + readCompleteLines(file, start, (line, lineOffset) -> {
+                    DetectionLogger.PlayerChannelData data = putRecord(target, line);
+                    if (data != null) targetOffsets.put(data.uuid, lineOffset);
+                });
+                records = target;
+                offsets = targetOffsets;
+            }
+            dataFile = file;
+            fileKey = attributes.fileKey();
+            creationTime = attributes.creationTime().toMillis();
+        }
+
+        /**
+         * Reads mod sets the node appended to its dictionary since the last poll. Dictionaries are append-only.
+         */
+        void refreshModSets(Path file) throws IOException {
+            long size = Files.size(file);
+            if (size < modSetsOffset) {
+                modSetsOffset = 0;
+            }
+            if (size == modSetsOffset) {
+                return;
+            }
+            modSetsOffset += readCompleteLines(file, modSetsOffset, (line, lineOffset) -> {
+                if (!line.isBlank()) DetectionTypeAdapters.readModSet(line, false);
+            });
+        }
+
+        void refreshDiscovered(Path file) throws IOException {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == discoveredModified || Files.size(file) == 0) {
+                return;
+            }
+            Set<String> loaded = GSON.fromJson(Files.readString(file), STRING_SET_TYPE);
+            discoveredChannels = loaded != null ? loaded : Set.of();
+            discoveredModified = modified;
+        }
+
+        /**
+         * The player's latest record from this node, read back from its file if it was dropped from memory.
+         */
+        DetectionLogger.PlayerChannelData get(UUID uuid) {
+            DetectionLogger.PlayerChannelData data = records.get(uuid);
+            Long at = data == null ? offsets.get(uuid) : null;
+            Path file = dataFile;
+            if (at == null || file == null) {
+                return data;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                String line = DetectionLogger.readLine(channel, at);
+                DetectionLogger.PlayerChannelData read = line != null ? DetectionLogger.parsePlayerData(line.trim()) : null;
+                // The node may have compacted since the last poll; the next poll re-reads the file and the record
+                return read != null && uuid.equals(read.uuid) ? read : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        boolean has(UUID uuid) {
+            return records.containsKey(uuid) || offsets.containsKey(uuid);
+        }
+
+        /**
+         * Every player this node has a record for, in memory or not.
+         */
+        Set<UUID> players() {
+            Map<UUID, Long> known = offsets;
+            return known.isEmpty() ? records.keySet() : known.keySet();
+        }
+
+        /**
+         * Parses every newline-terminated line from {@code start}, passing each with its offset; a trailing partial
+         * line is left for the next poll.
+         *
+         * @return number of bytes consumed
+         */
+        private static long readCompleteLines(Path file, long start, ObjLongConsumer<String> onLine) throws IOException {
+            long consumed = 0;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.position(start);
+                InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+                ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+                int b;
+                while ((b = in.read()) != -1) {
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    long lineOffset = start + consumed;
+                    consumed += line.size() + 1;
+                    onLine.accept(line.toString(StandardCharsets.UTF_8), lineOffset);
+                    line.reset();
+                }
+            }
+            return consumed;
+        }
+
+        private DetectionLogger.PlayerChannelData putRecord(Map<UUID, DetectionLogger.PlayerChannelData> target, String line) {
+            line = line.trim();
+            if (line.isEmpty()) return null;
+            DetectionLogger.PlayerChannelData data = DetectionLogger.parsePlayerData(line);
+            if (data != null) {
+                // Later lines supersede earlier ones, exactly as when the owning node loads its own file
+                target.put(data.uuid, data);
+                onRecord.accept(data);
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Username to UUID index over every name a player has been seen with, current and previous.
+ *
+ * <p>Names are kept sorted by their lowercase form, so prefix completion is a range scan that stops after
+ * {@code limit} names instead of a pass over every record. The names themselves are persisted as part of each
+ * player's record ({@code username} and {@code previousNames}) and the index is rebuilt from them on load.
+ */
+final class UsernameIndex {
+
+    private static final class Entry {
+        volatile String displayName;  // Casing as last seen
+        final Set<UUID> players = ConcurrentHashMap.newKeySet();
+
+        Entry(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Entry> names = new ConcurrentSkipListMap<>();
+
+    void index(DetectionLogger.PlayerChannelData data) {
+        add(data.username, data.uuid);
+        if (data.previousNames != null) {
+            for (String name : data.previousNames) {
+                add(name, data.uuid);
+            }
+        }
+    }
+
+    void add(String username, UUID uuid) {
+        if (username == null || username.isEmpty()) {
+            return;
+        }
+        Entry entry = names.computeIfAbsent(username.toLowerCase(Locale.ROOT), k -> new Entry(username));
+        entry.displayName = username;
+        entry.players.add(uuid);
+    }
+
+    /**
+     * Every player that has used this name (case-insensitive), now or in the past.
+     */
+    Set<UUID> lookup(String username) {
+        Entry entry = names.get(username.toLowerCase(Locale.ROOT));
+        return entry != null ? entry.players : Set.of();
+    }
+
+    /**
+     * Up to {@code limit} known names starting with {@code prefix} (case-insensitive), in alphabetical order.
+     */
+    List<String> complete(String prefix, int limit) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        ConcurrentNavigableMap<String, Entry> range = from.isEmpty()
+                ? names
+                : names.subMap(from, true, from + Character.MAX_VALUE, false);
+        List<String> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Entry> entry : range.entrySet()) {
+            if (matches.size() >= limit) break;
+            matches.add(entry.getValue().displayName);
+        }
+        return matches;
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    void reportMemory(MemoryReport report) {
+        long bytes = MemoryReport.hashEntries(names.size());
+        for (Map.Entry<String, Entry> entry : names.entrySet()) {
+            // Key (lowercase) and display name are usually separate strings
+            bytes += 2 * MemoryReport.string(entry.getKey()) + MemoryReport.OBJECT
+                    + MemoryReport.hashEntries(entry.getValue().players.size());
+        }
+        report.add("Username index", names.size(), bytes);
+    }
+}
@@ -0,0 +1,310 @@
+package xyz.nim.modDetectorPlugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * A list of channel wildcards ({@code *} for any run of characters, {@code ?} for one) matched together, case
+ * insensitively, with the same results as {@link ModFilterConfig#wildcardToRegex} on each.
+ *
+ * <p>Each pattern is split at its {@code *}s into literal pieces, and every piece of every pattern goes into one
+ * Aho-Corasick automaton. A match is a single pass over the channel: each piece found advances its pattern if it is
+ * the next one that pattern needs and starts after the previous one ended, and a pattern matches once its last piece
+ * is placed. Taking each piece at its earliest end leaves the most room for the rest, so this finds a match whenever
+ * there is one. The cost is linear in the channel plus the pieces found in it, however many patterns there are.
+ *
+ * <p>The rare pattern using {@code ?} is still compiled to a regex and checked after the pass.
+ */
+final class WildcardMatcher {
+
+    static final WildcardMatcher EMPTY = compile(List.of());
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private final String[] wildcards;
+
+    // Per pattern: literal pieces between the *s, and whether the first and last piece are pinned to the ends
+    private final int[] pieceCount;
+    private final boolean[] anchoredStart;
+    private final boolean[] anchoredEnd;
+    // Patterns without pieces: "*" matches any channel, "" only the empty one
+    private final int[] matchAll;
+    private final int[] matchEmpty;
+
+    // Automaton node i: edges [firstEdge[i], firstEdge[i + 1]) sorted by character, the longest proper suffix that is
+    // also a node, the nearest such suffix with outputs, and its own outputs [firstOutput[i], firstOutput[i + 1])
+    private final int[] depth;
+    private final int[] firstEdge;
+    private final char[] edgeChar;
+    private final int[] edgeChild;
+    private final int[] failure;
+    private final int[] outputLink;
+    private final int[] firstOutput;
+    // Outputs as (pattern, piece), ordered by pattern then piece
+    private final int[] outputPattern;
+    private final int[] outputPiece;
+
+    private final int[] regexIndex;
+    private final Pattern[] regexes;
+
+    private WildcardMatcher(String[] wildcards, int[] pieceCount, boolean[] anchoredStart, boolean[] anchoredEnd,
+                            int[] matchAll, int[] matchEmpty, int[] depth, int[] firstEdge, char[] edgeChar,
+                            int[] edgeChild, int[] failure, int[] outputLink, int[] firstOutput, int[] outputPattern,
+                            int[] outputPiece, int[] regexIndex, Pattern[] regexes) {
+        this.wildcards = wildcards;
+        this.pieceCount = pieceCount;
+        this.anchoredStart = anchoredStart;
+        this.anchoredEnd = anchoredEnd;
+        this.matchAll = matchAll;
+        this.matchEmpty = matchEmpty;
+        this.depth = depth;
+        this.firstEdge = firstEdge;
+        this.edgeChar = edgeChar;
+        this.edgeChild = edgeChild;
+        this.failure = failure;
+        this.outputLink = outputLink;
+        this.firstOutput = firstOutput;
+        this.outputPattern = outputPattern;
+        this.outputPiece = outputPiece;
+        this.regexIndex = regexIndex;
+        this.regexes = regexes;
+    }
+
+    /**
+     * Compiles the wildcards; indexes in the results refer to positions in this list.
+     */
+    static WildcardMatcher compile(List<String> wildcards) {
+        int count = wildcards.size();
+        int[] pieceCount = new int[count];
+        boolean[] anchoredStart = new boolean[count];
+        boolean[] anchoredEnd = new boolean[count];
+        List<Integer> matchAll = new ArrayList<>();
+        List<Integer> matchEmpty = new ArrayList<>();
+        List<Integer> regexIndex = new ArrayList<>();
+        List<Pattern> regexes = new ArrayList<>();
+
+        // Build the trie with maps first, then flatten it
+        List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        List<List<int[]>> outputs = new ArrayList<>();
+        List<Integer> depth = new ArrayList<>();
+        edges.add(new TreeMap<>());
+        outputs.add(new ArrayList<>());
+        depth.add(0);
+
+        for (int p = 0; p < count; p++) {
+            String wildcard = wildcards.get(p);
+            if (wildcard.indexOf('?') >= 0) {
+                regexIndex.add(p);
+                regexes.add(ModFilterConfig.wildcardToRegex(wildcard));
+                continue;
+            }
+            anchoredStart[p] = !wildcard.startsWith("*");
+            anchoredEnd[p] = !wildcard.endsWith("*");
+            int piece = 0;
+            for (String literal : wildcard.split("\\*")) {
+                if (literal.isEmpty()) continue;
+                int node = ROOT;
+                for (int i = 0; i < literal.length(); i++) {
+                    char c = fold(literal.charAt(i));
+                    Integer child = edges.get(node).get(c);
+                    if (child == null) {
+                        child = edges.size();
+                        edges.add(new TreeMap<>());
+                        outputs.add(new ArrayList<>());
+                        depth.add(depth.get(node) + 1);
+                        edges.get(node).put(c, child);
+                    }
+                    node = child;
+                }
+                outputs.get(node).add(new int[]{p, piece++});
+            }
+            pieceCount[p] = piece;
+            if (piece == 0) {
+                (wildcard.isEmpty() ? matchEmpty : matchAll).add(p);
+            }
+        }
+
+        int nodeCount = edges.size();
+        int[] firstEdge = new int[nodeCount + 1];
+        char[] edgeChar = new char[nodeCount - 1];
+        int[] edgeChild = new int[nodeCount - 1];
+        int edge = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            firstEdge[node] = edge;
+            for (Map.Entry<Character, Integer> entry : edges.get(node).entrySet()) {
+                edgeChar[edge] = entry.getKey();
+                edgeChild[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        firstEdge[nodeCount] = edge;
+
+        // Failure links breadth first, so a node's suffixes are done before it
+        int[] failure = new int[nodeCount];
+        int[] outputLink = new int[nodeCount];
+        failure[ROOT] = ROOT;
+        outputLink[ROOT] = NONE;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = firstEdge[ROOT]; e < firstEdge[ROOT + 1]; e++) {
+            failure[edgeChild[e]] = ROOT;
+            outputLink[edgeChild[e]] = NONE;
+            queue.add(edgeChild[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = firstEdge[node]; e < firstEdge[node + 1]; e++) {
+                int child = edgeChild[e];
+                int fallback = failure[node];
+                int next;
+                while ((next = child(firstEdge, edgeChar, edgeChild, fallback, edgeChar[e])) == NONE && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next != NONE ? next : ROOT;
+                outputLink[child] = !outputs.get(failure[child]).isEmpty() ? failure[child] : outputLink[failure[child]];
+                queue.add(child);
+            }
+        }
+
+        int[] firstOutput = new int[nodeCount + 1];
+        int outputCount = 0;
+        for (List<int[]> nodeOutputs : outputs) {
+            outputCount += nodeOutputs.size();
+        }
+        int[] outputPattern = new int[outputCount];
+        int[] outputPiece = new int[outputCount];
+        int output = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            firstOutput[node] = output;
+            // Added in pattern then piece order already
+            for (int[] entry : outputs.get(node)) {
+                outputPattern[output] = entry[0];
+                outputPiece[output] = entry[1];
+                output++;
+            }
+        }
+        firstOutput[nodeCount] = output;
+
+        return new WildcardMatcher(wildcards.toArray(new String[0]), pieceCount, anchoredStart, anchoredEnd,
+                toArray(matchAll), toArray(matchEmpty), toArray(depth), firstEdge, edgeChar, edgeChild, failure,
+                outputLink, firstOutput, outputPattern, outputPiece, toArray(regexIndex), regexes.toArray(new Pattern[0]));
+    }
+
+    int size() {
+        return wildcards.length;
+    }
+
+    boolean matchesAny(String channel) {
+        return firstMatch(channel, p -> true) != NONE;
+    }
+
+    /**
+     * Index of the first pattern matching the whole channel, or -1.
+     */
+    int firstMatch(String channel) {
+        return firstMatch(channel, p -> true);
+    }
+
+    /**
+     * Index of the first pattern accepted by {@code filter} that matches the whole channel, or -1.
+     */
+    int firstMatch(String channel, IntPredicate filter) {
+        int best = first(matchAll, filter, NONE);
+        if (channel.isEmpty()) {
+            best = first(matchEmpty, filter, best);
+        }
+
+        int length = channel.length();
+        // Pieces placed and where the last one ended, per pattern; only allocated once a piece turns up
+        int[] placed = null;
+        int[] placedEnd = null;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            char c = fold(channel.charAt(i));
+            int next;
+            while ((next = child(firstEdge, edgeChar, edgeChild, node, c)) == NONE && node != ROOT) {
+                node = failure[node];
+            }
+            node = next != NONE ? next : ROOT;
+
+            for (int found = firstOutput[node] < firstOutput[node + 1] ? node : outputLink[node]; found != NONE;
+                 found = outputLink[found]) {
+                int start = i + 1 - depth[found];
+                for (int o = firstOutput[found]; o < firstOutput[found + 1]; o++) {
+                    int p = outputPattern[o];
+                    int piece = outputPiece[o];
+                    if (best != NONE && p >= best) break;
+                    if (placed == null) {
+                        placed = new int[wildcards.length];
+                        placedEnd = new int[wildcards.length];
+                    }
+                    if (piece != placed[p] || start < placedEnd[p]) continue;
+                    if (piece == 0 && anchoredStart[p] && start != 0) continue;
+                    boolean last = piece == pieceCount[p] - 1;
+                    if (last && anchoredEnd[p] && i != length - 1) continue;
+                    placed[p]++;
+                    placedEnd[p] = i + 1;
+                    if (last && filter.test(p)) {
+                        best = p;
+                    }
+                }
+            }
+        }
+
+        for (int r = 0; r < regexes.length; r++) {
+            int p = regexIndex[r];
+            if (best != NONE && p >= best) break;
+            if (filter.test(p) && regexes[r].matcher(channel).matches()) {
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The arrays, plus the original wildcards and any regexes.
+     */
+    long estimateBytes() {
+        long bytes = MemoryReport.OBJECT + 18 * MemoryReport.REFERENCE;
+        bytes += 16 + wildcards.length * (4L + 4 + 2 + MemoryReport.REFERENCE);
+        for (String wildcard : wildcards) {
+            bytes += MemoryReport.string(wildcard);
+        }
+        bytes += 16 + depth.length * (4L * 5 + 2);
+        bytes += 16 + outputPattern.length * 8L;
+        for (Pattern regex : regexes) {
+            bytes += 200 + 40L * regex.pattern().length();
+        }
+        return bytes;
+    }
+
+    private static int first(int[] patterns, IntPredicate filter, int best) {
+        for (int p : patterns) {
+            if (best != NONE && p >= best) break;
+            if (filter.test(p)) return p;
+        }
+        return best;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * ASCII-only, like the regexes' CASE_INSENSITIVE.
+     */
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static int child(int[] firstEdge, char[] edgeChar, int[] edgeChild, int node, char c) {
+        int found = Arrays.binarySearch(edgeChar, firstEdge[node], firstEdge[node + 1], c);
+        return found >= 0 ? edgeChild[found] : NONE;
+    }
+}